@@ -0,0 +1,80 @@
+package com.sb.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sb.service.Search;
+
+/**
+ * {@link Search#distance} on pairs of strings of one length, two edits apart (similar) or unrelated
+ * (dissimilar), unbounded and bounded the way the search engine calls it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistanceBenchmark {
+
+    private static final int PAIRS = 256;
+
+    @Param({ "8", "16", "32", "64", "128" })
+    int length;
+
+    private String[] left;
+    private String[] similar;
+    private String[] dissimilar;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        left = SyntheticCatalog.words(PAIRS, length, 1);
+        dissimilar = SyntheticCatalog.words(PAIRS, length, 2);
+        similar = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            similar[i] = SyntheticCatalog.typo(left[i], 2, random);
+        }
+    }
+
+    private int pair() {
+        return next++ & (PAIRS - 1);
+    }
+
+    @Benchmark
+    public int similar() {
+        int i = pair();
+        return Search.distance(left[i], similar[i]);
+    }
+
+    @Benchmark
+    public int dissimilar() {
+        int i = pair();
+        return Search.distance(left[i], dissimilar[i]);
+    }
+
+    @Benchmark
+    public int similarBounded() {
+        int i = pair();
+        return Search.distance(left[i], similar[i], 2);
+    }
+
+    @Benchmark
+    public int dissimilarBounded() {
+        int i = pair();
+        return Search.distance(left[i], dissimilar[i], 2);
+    }
+}
@@ -0,0 +1,126 @@
+package com.sb.benchmark;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.core.io.ByteArrayResource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.domain.BatchSearchResult;
+import com.sb.domain.Product;
+import com.sb.repository.CatalogIndexSettings;
+import com.sb.repository.ProductCatalogRepositoryImpl;
+import com.sb.service.CatalogReloader;
+import com.sb.service.ProductCatalogServiceImpl;
+import com.sb.service.ProductFeedReader;
+import com.sb.service.ProductSearchEngine;
+import com.sb.service.SearchMetrics;
+import com.sb.service.SearchMode;
+import com.sb.service.SearchResultCache;
+
+/**
+ * End-to-end {@link ProductCatalogServiceImpl#searchProducts} over a synthetic catalog, cycling through
+ * a fixed mix of queries of one kind. The result cache is disabled so every call searches.
+ *
+ * Building the 1M catalog takes a while; pick sizes and modes with {@code -p catalogSize=... -p mode=...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SearchBenchmark {
+
+    private static final int BATCH = 16;
+
+    @Param({ "10000", "100000", "1000000" })
+    int catalogSize;
+
+    @Param({ "EXACT", "PREFIX", "TYPO", "NO_MATCH" })
+    SyntheticCatalog.QueryKind queryKind;
+
+    @Param({ "SCAN" })
+    SearchMode mode;
+
+    @Param({ "10" })
+    int limit;
+
+    @Param({ "objects", "columnar" })
+    String layout;
+
+    /** Search pool threads; 1 scores every search sequentially. */
+    @Param({ "1" })
+    int searchThreads;
+
+    private ProductSearchEngine engine;
+    private ProductCatalogServiceImpl service;
+    private String[] queries;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Product> products = SyntheticCatalog.products(catalogSize, 7);
+        ProductCatalogRepositoryImpl repository = new ProductCatalogRepositoryImpl(
+            CatalogIndexSettings.of(3, new String[] { "name" }, 2, 10_000, layout));
+        repository.saveAll(products);
+        engine = new ProductSearchEngine(searchThreads, 10_000);
+        service = new ProductCatalogServiceImpl(repository,
+            new ProductFeedReader(new ObjectMapper(), 1000, new ByteArrayResource(new byte[0])), engine,
+            new SearchResultCache(0, Duration.ZERO), new CatalogReloader(), SearchMetrics.NONE);
+        queries = SyntheticCatalog.queries(products, queryKind, 11);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public List<Product> search(Cursor cursor) {
+        String query = queries[cursor.next++ & (queries.length - 1)];
+        return service.searchProducts(query, limit, mode, 2);
+    }
+
+    /** {@link #BATCH} consecutive queries, one search call each. */
+    @Benchmark
+    public int searchEach(Cursor cursor) {
+        int found = 0;
+        for (String query : batch(cursor)) {
+            found += service.searchProducts(query, limit, mode, 2).size();
+        }
+        return found;
+    }
+
+    /** The same {@link #BATCH} queries as one batch search. */
+    @Benchmark
+    public List<BatchSearchResult> searchBatch(Cursor cursor) {
+        return service.searchProductsBatch(batch(cursor), limit, mode, 2);
+    }
+
+    private List<String> batch(Cursor cursor) {
+        int from = cursor.next & (queries.length - 1) & -BATCH;
+        cursor.next += BATCH;
+        return Arrays.asList(queries).subList(from, from + BATCH);
+    }
+}
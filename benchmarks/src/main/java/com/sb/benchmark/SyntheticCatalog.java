@@ -0,0 +1,103 @@
+package com.sb.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.sb.domain.Product;
+
+/**
+ * Deterministic catalogs and query mixes for the benchmarks. Names are brand, adjective, noun and
+ * model number, so a large catalog has many near-duplicate names the way a real one does.
+ */
+public final class SyntheticCatalog {
+
+    public enum QueryKind { EXACT, PREFIX, TYPO, NO_MATCH }
+
+    private static final String[] BRANDS = {
+        "Acme", "Zenith", "Nova", "Orion", "Apex", "Vertex", "Lumen", "Pulse", "Summit", "Echo",
+        "Atlas", "Nimbus", "Vortex", "Quartz", "Helix", "Solstice"
+    };
+    private static final String[] ADJECTIVES = {
+        "Wireless", "Portable", "Compact", "Ergonomic", "Smart", "Premium", "Ultra", "Classic",
+        "Digital", "Stainless", "Rechargeable", "Foldable", "Waterproof", "Mechanical", "Ceramic", "Organic"
+    };
+    private static final String[] NOUNS = {
+        "Laptop", "Headphones", "Keyboard", "Mouse", "Monitor", "Speaker", "Coffee Maker", "Blender",
+        "Backpack", "Water Bottle", "Desk Lamp", "Smartwatch", "Camera", "Tablet", "Charger", "Router",
+        "Toaster", "Kettle", "Thermostat", "Microphone", "Projector", "Vacuum", "Air Fryer", "Fitness Tracker"
+    };
+    private static final String[] CATEGORIES = { "Electronics", "Kitchen", "Office", "Outdoor", "Home" };
+
+    private static final int QUERY_COUNT = 1024;
+
+    private SyntheticCatalog() {}
+
+    static List<Product> products(int count, long seed) {
+        Random random = new Random(seed);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName(BRANDS[random.nextInt(BRANDS.length)] + " " + ADJECTIVES[random.nextInt(ADJECTIVES.length)]
+                + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + (100 + random.nextInt(900)));
+            product.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            product.setDescription("Synthetic product " + i);
+            product.setPrice(1 + random.nextInt(100_000) / 100.0);
+            product.setImageUrl("http://example.com/" + i + ".jpg");
+            products.add(product);
+        }
+        return products;
+    }
+
+    static String[] queries(List<Product> products, QueryKind kind, long seed) {
+        Random random = new Random(seed);
+        String[] queries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            String name = products.get(random.nextInt(products.size())).getName();
+            queries[i] = switch (kind) {
+                case EXACT -> name;
+                case PREFIX -> name.substring(0, Math.max(3, name.length() / 2));
+                case TYPO -> typo(name, 1 + random.nextInt(2), random);
+                case NO_MATCH -> randomWord(8 + random.nextInt(8), random);
+            };
+        }
+        return queries;
+    }
+
+    /** Random strings of the given length over a small alphabet, so pairs share characters. */
+    static String[] words(int count, int length, long seed) {
+        Random random = new Random(seed);
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = randomWord(length, random);
+        }
+        return words;
+    }
+
+    /** Applies {@code edits} random substitutions, deletions, insertions or transpositions. */
+    static String typo(String text, int edits, Random random) {
+        StringBuilder typo = new StringBuilder(text);
+        for (int e = 0; e < edits && typo.length() > 1; e++) {
+            int at = random.nextInt(typo.length() - 1);
+            switch (random.nextInt(4)) {
+                case 0 -> typo.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                case 1 -> typo.deleteCharAt(at);
+                case 2 -> typo.insert(at, (char) ('a' + random.nextInt(26)));
+                default -> {
+                    char c = typo.charAt(at);
+                    typo.setCharAt(at, typo.charAt(at + 1));
+                    typo.setCharAt(at + 1, c);
+                }
+            }
+        }
+        return typo.toString();
+    }
+
+    private static String randomWord(int length, Random random) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('q' + random.nextInt(10));
+        }
+        return new String(chars);
+    }
+}
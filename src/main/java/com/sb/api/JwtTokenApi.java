@@ -44,9 +44,11 @@ public class JwtTokenApi {
             throw new IllegalArgumentException("TTL seconds must be positive");
         }
 
-        logger.info("POST /api/generate-token - Generating token for subject: {}, scope: {}, ttlSeconds: {}",
-            subject, scope, ttlSeconds);
-        logger.debug("Using JWT Secret: {}", jwtSecret);
+        logger.atInfo()
+            .addKeyValue("subject", subject)
+            .addKeyValue("scope", scope)
+            .addKeyValue("ttlSeconds", ttlSeconds)
+            .log("POST /api/generate-token");
 
         JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
         .subject(subject)
@@ -63,9 +65,6 @@ public class JwtTokenApi {
 
         signedJWT.sign(signer);
 
-        String token = signedJWT.serialize();
-        logger.info("Generated JWT token for subject {}: {}", subject, token);
-
         return signedJWT.serialize();
     }
 }
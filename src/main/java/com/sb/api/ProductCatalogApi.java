@@ -1,9 +1,15 @@
 package com.sb.api;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,14 +19,26 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.sb.domain.BatchSearchResult;
+import com.sb.domain.BulkIngestResult;
 import com.sb.domain.Product;
+import com.sb.domain.ProductFilter;
+import com.sb.domain.ProductPage;
+import com.sb.domain.ReloadStatus;
+import com.sb.repository.SuggestionTrie;
 import com.sb.service.ProductCatalogServiceInterface;
+import com.sb.service.ProductSort;
+import com.sb.service.SearchMode;
+import com.sb.service.SearchResultCache;
 
 @RestController
 @RequestMapping("/api")
 public class ProductCatalogApi {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductCatalogApi.class);
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String PARTIAL_RESULTS_HEADER = "X-Partial-Results";
+    private static final List<String> BATCH_UNSUPPORTED_PARAMS = List.of("category", "minPrice", "maxPrice", "sort", "fields");
     private final ProductCatalogServiceInterface service;
 
     public ProductCatalogApi(ProductCatalogServiceInterface service) {
@@ -29,34 +47,85 @@ public class ProductCatalogApi {
 
     @PostMapping("/products")
     public ResponseEntity<Product> addProduct(@RequestBody Product product) {
-        logger.info("POST /api/products - Adding product: {}", product != null ? product.getName() : "null");
+        logger.atInfo().addKeyValue("name", product != null ? product.getName() : null).log("POST /api/products");
         return ResponseEntity.ok(service.addProduct(product));
     }
 
+    /**
+     * Streams products from the request body, a JSON array or newline-delimited JSON, validating each
+     * like {@code POST /api/products} and storing them in batches. Invalid products are skipped and
+     * counted per batch.
+     */
+    @PostMapping(value = "/products/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<BulkIngestResult> bulkAddProducts(InputStream feed) {
+        logger.atInfo().log("POST /api/products/bulk");
+        return ResponseEntity.ok(service.bulkAddProducts(feed));
+    }
+
+    /**
+     * Lists products in catalog order. Without {@code after}, returns page {@code page} by offset. With
+     * {@code after} (empty for the first page), returns the products following that cursor and sets
+     * the {@code X-Next-Cursor} header to pass as {@code after} for the next page, unless this is the
+     * last one. Cursor pages stay stable while products are added.
+     *
+     * {@code category}, {@code minPrice} and {@code maxPrice} restrict the listing; {@code sort}
+     * ({@code price_asc} or {@code price_desc}) orders it by price, with offset pages only.
+     * {@code fields} (e.g. {@code id,name,price}) limits the product fields returned.
+     */
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getAllProducts(@RequestParam(defaultValue = "0") int page,
-        @RequestParam(defaultValue = "10") int size) {
-        logger.info("GET /api/products - Fetching products: page {}, size {}", page, size);
-        if (page < 0) {
-            logger.warn("Page parameter was negative: {}", page);
-            page = 0;
-        }
+    public ResponseEntity<List<?>> getAllProducts(@RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "10") int size,
+        @RequestParam(required = false) String after,
+        @RequestParam(required = false) String category,
+        @RequestParam(required = false) Double minPrice,
+        @RequestParam(required = false) Double maxPrice,
+        @RequestParam(required = false) String sort,
+        @RequestParam(required = false) String fields) {
+        logger.atDebug()
+            .addKeyValue("page", page)
+            .addKeyValue("size", size)
+            .addKeyValue("after", after)
+            .addKeyValue("category", category)
+            .addKeyValue("minPrice", minPrice)
+            .addKeyValue("maxPrice", maxPrice)
+            .addKeyValue("sort", sort)
+            .addKeyValue("fields", fields)
+            .log("GET /api/products");
+        ProductFields productFields = ProductFields.parse(fields);
         if (size <= 0 || size > 100) {
             logger.warn("Size parameter out of bounds: {}, defaulting to 10", size);
             size = 10;
         }
-        List<Product> products = service.getProducts(page, size);
-        return ResponseEntity.ok(products);
+        ProductFilter filter = new ProductFilter(category, minPrice, maxPrice);
+        ProductSort productSort = ProductSort.fromParam(sort);
+        if (after != null) {
+            if (productSort != ProductSort.DEFAULT) {
+                throw new IllegalArgumentException("Cursor pages are only available in catalog order");
+            }
+            ProductPage productPage = filter.isEmpty() ? service.getProductsAfter(after, size)
+                : service.getProductsAfter(after, size, filter);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (productPage.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, productPage.nextCursor());
+            }
+            return response.body(project(productFields, productPage.items()));
+        }
+        if (page < 0) {
+            logger.warn("Page parameter was negative: {}", page);
+            page = 0;
+        }
+        List<Product> products = filter.isEmpty() && productSort == ProductSort.DEFAULT ? service.getProducts(page, size)
+            : service.getProducts(page, size, filter, productSort);
+        return ResponseEntity.ok(project(productFields, products));
     }
 
     @GetMapping("/products/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable String id) {
-        logger.info("GET /api/products/{} - Fetching product by ID", id);
+        logger.atDebug().addKeyValue("id", id).log("GET /api/products/{id}");
         if (id == null || id.trim().isEmpty()) {
             logger.warn("Product ID was null or empty");
             throw new IllegalArgumentException("Product ID cannot be null or empty");
         }
-        logger.info("GET /api/products/{} - Fetching product", id);
         Product product = service.getProductById(id);
         if (product == null) {
             return ResponseEntity.notFound().build();
@@ -64,17 +133,155 @@ public class ProductCatalogApi {
         return ResponseEntity.ok(product);
     }
 
+    /**
+     * Fuzzy search by name. {@code category}, {@code minPrice} and {@code maxPrice} restrict the
+     * products scored; {@code sort} ({@code price_asc} or {@code price_desc}) reorders the best matches.
+     * {@code fields} limits the product fields returned, as for {@code GET /api/products}.
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q) {
-        logger.info("GET /api/search - Searching for products with query: {}", q);
-        List<Product> results = service.searchProducts(q);
-        return ResponseEntity.ok(results);
+    public ResponseEntity<List<?>> searchProducts(@RequestParam String q,
+        @RequestParam(defaultValue = "10") int limit,
+        @RequestParam(defaultValue = "scan") String mode,
+        @RequestParam(defaultValue = "2") int maxEdits,
+        @RequestParam(required = false) String category,
+        @RequestParam(required = false) Double minPrice,
+        @RequestParam(required = false) Double maxPrice,
+        @RequestParam(required = false) String sort,
+        @RequestParam(required = false) String fields) {
+        logger.atDebug()
+            .addKeyValue("q", q)
+            .addKeyValue("limit", limit)
+            .addKeyValue("mode", mode)
+            .addKeyValue("maxEdits", maxEdits)
+            .addKeyValue("category", category)
+            .addKeyValue("minPrice", minPrice)
+            .addKeyValue("maxPrice", maxPrice)
+            .addKeyValue("sort", sort)
+            .addKeyValue("fields", fields)
+            .log("GET /api/search");
+        ProductFields productFields = ProductFields.parse(fields);
+        SearchMode searchMode = SearchMode.fromParam(mode);
+        if (limit <= 0 || limit > 100) {
+            logger.warn("Limit parameter out of bounds: {}, defaulting to 10", limit);
+            limit = 10;
+        }
+        ProductFilter filter = new ProductFilter(category, minPrice, maxPrice);
+        ProductSort productSort = ProductSort.fromParam(sort);
+        List<Product> results = filter.isEmpty() && productSort == ProductSort.DEFAULT
+            ? service.searchProducts(q, limit, searchMode, maxEdits)
+            : service.searchProducts(q, limit, searchMode, maxEdits, filter, productSort);
+        return ResponseEntity.ok(project(productFields, results));
+    }
+
+    /**
+     * Like {@code GET /api/search}, but the request thread is released while the search runs. After
+     * {@code timeoutMs} the best results found so far are returned with {@code X-Partial-Results: true}.
+     */
+    @GetMapping("/search/async")
+    public CompletableFuture<ResponseEntity<List<Product>>> searchProductsAsync(@RequestParam String q,
+        @RequestParam(defaultValue = "10") int limit,
+        @RequestParam(defaultValue = "scan") String mode,
+        @RequestParam(defaultValue = "2") int maxEdits,
+        @RequestParam(defaultValue = "500") long timeoutMs) {
+        logger.atDebug()
+            .addKeyValue("q", q)
+            .addKeyValue("limit", limit)
+            .addKeyValue("mode", mode)
+            .addKeyValue("maxEdits", maxEdits)
+            .addKeyValue("timeoutMs", timeoutMs)
+            .log("GET /api/search/async");
+        SearchMode searchMode = SearchMode.fromParam(mode);
+        if (limit <= 0 || limit > 100) {
+            logger.warn("Limit parameter out of bounds: {}, defaulting to 10", limit);
+            limit = 10;
+        }
+        if (timeoutMs <= 0 || timeoutMs > 10_000) {
+            logger.warn("Timeout parameter out of bounds: {}, defaulting to 500", timeoutMs);
+            timeoutMs = 500;
+        }
+        return service.searchProductsAsync(q, limit, searchMode, maxEdits, Duration.ofMillis(timeoutMs))
+            .thenApply(result -> ResponseEntity.ok()
+                .header(PARTIAL_RESULTS_HEADER, String.valueOf(result.partial()))
+                .body(result.items()));
+    }
+
+    /**
+     * Runs {@code GET /api/search} for every query in the body, a JSON array of strings, returning the
+     * results in query order. Scan searches share a single pass over the catalog. Filters, sorting
+     * and field selection are not supported and rejected rather than ignored.
+     */
+    @PostMapping("/search/batch")
+    public ResponseEntity<List<BatchSearchResult>> searchProductsBatch(@RequestBody List<String> queries,
+        @RequestParam(defaultValue = "10") int limit,
+        @RequestParam(defaultValue = "scan") String mode,
+        @RequestParam(defaultValue = "2") int maxEdits,
+        @RequestParam Map<String, String> params) {
+        for (String unsupported : BATCH_UNSUPPORTED_PARAMS) {
+            if (params.containsKey(unsupported)) {
+                throw new IllegalArgumentException("Batch search does not support the " + unsupported + " parameter");
+            }
+        }
+        logger.atDebug()
+            .addKeyValue("queries", queries != null ? queries.size() : 0)
+            .addKeyValue("limit", limit)
+            .addKeyValue("mode", mode)
+            .addKeyValue("maxEdits", maxEdits)
+            .log("POST /api/search/batch");
+        SearchMode searchMode = SearchMode.fromParam(mode);
+        if (limit <= 0 || limit > 100) {
+            logger.warn("Limit parameter out of bounds: {}, defaulting to 10", limit);
+            limit = 10;
+        }
+        return ResponseEntity.ok(service.searchProductsBatch(queries, limit, searchMode, maxEdits));
+    }
+
+    /**
+     * Typeahead: completes the last word of {@code prefix} with the name words found in the most
+     * products, at most {@code limit} (1-10, default 10).
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggest(@RequestParam String prefix,
+        @RequestParam(defaultValue = "10") int limit) {
+        logger.atDebug().addKeyValue("prefix", prefix).addKeyValue("limit", limit).log("GET /api/suggest");
+        if (limit <= 0 || limit > SuggestionTrie.MAX_COMPLETIONS) {
+            logger.warn("Limit parameter out of bounds: {}, defaulting to {}", limit, SuggestionTrie.MAX_COMPLETIONS);
+            limit = SuggestionTrie.MAX_COMPLETIONS;
+        }
+        return ResponseEntity.ok(service.suggest(prefix, limit));
     }
 
+    @GetMapping("/search/cache")
+    public ResponseEntity<SearchResultCache.Stats> getSearchCacheStats() {
+        logger.debug("GET /api/search/cache");
+        return ResponseEntity.ok(service.searchCacheStats());
+    }
+
+    /**
+     * Reloads the catalog from the product feed. The new catalog is built next to the live one, which
+     * keeps serving until it is swapped in. With {@code async=true}, returns 202 with the reload job
+     * right away; poll it at {@code /api/products/prepopulate/{jobId}}.
+     */
     @PostMapping("/products/prepopulate")
-    public ResponseEntity<String> prepopulateProducts() {
-        logger.info("POST /api/products/prepopulate - Reloading product data from JSON");
+    public ResponseEntity<?> prepopulateProducts(@RequestParam(defaultValue = "false") boolean async) {
+        logger.atInfo().addKeyValue("async", async).log("POST /api/products/prepopulate");
+        if (async) {
+            ReloadStatus status = service.reloadProducts();
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/products/prepopulate/" + status.id()))
+                .body(status);
+        }
         service.prepopulateProducts();
         return ResponseEntity.ok("Product data reloaded from JSON.");
     }
+
+    @GetMapping("/products/prepopulate/{jobId}")
+    public ResponseEntity<ReloadStatus> getReloadStatus(@PathVariable String jobId) {
+        logger.atDebug().addKeyValue("jobId", jobId).log("GET /api/products/prepopulate/{jobId}");
+        return ResponseEntity.ok(service.getReloadStatus(jobId));
+    }
+
+    // all fields without a projection
+    private static List<?> project(ProductFields fields, List<Product> products) {
+        return fields == null ? products : fields.project(products);
+    }
 }
@@ -0,0 +1,78 @@
+package com.sb.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.sb.domain.Product;
+
+// fields=id,name,price; projected products are written field by field straight from the Product
+final class ProductFields {
+
+    private enum Field {
+        ID("id"), NAME("name"), CATEGORY("category"), DESCRIPTION("description"), PRICE("price"), IMAGE_URL("imageUrl");
+
+        final String jsonName;
+
+        Field(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    private final Field[] fields;
+
+    private ProductFields(Field[] fields) {
+        this.fields = fields;
+    }
+
+    // null means every field
+    static ProductFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        boolean[] selected = new boolean[Field.values().length];
+        for (String name : fields.split(",")) {
+            Field field = Arrays.stream(Field.values())
+                .filter(f -> f.jsonName.equals(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown field: " + name.trim()));
+            selected[field.ordinal()] = true;
+        }
+        return new ProductFields(Arrays.stream(Field.values()).filter(f -> selected[f.ordinal()]).toArray(Field[]::new));
+    }
+
+    List<Projected> project(List<Product> products) {
+        List<Projected> projected = new ArrayList<>(products.size());
+        for (Product product : products) {
+            projected.add(new Projected(product, fields));
+        }
+        return projected;
+    }
+
+    @JsonSerialize(using = ProjectedSerializer.class)
+    record Projected(Product product, Field[] fields) {}
+
+    static final class ProjectedSerializer extends JsonSerializer<Projected> {
+        @Override
+        public void serialize(Projected projected, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            Product product = projected.product();
+            gen.writeStartObject();
+            for (Field field : projected.fields()) {
+                switch (field) {
+                    case ID -> gen.writeStringField(field.jsonName, product.getId());
+                    case NAME -> gen.writeStringField(field.jsonName, product.getName());
+                    case CATEGORY -> gen.writeStringField(field.jsonName, product.getCategory());
+                    case DESCRIPTION -> gen.writeStringField(field.jsonName, product.getDescription());
+                    case PRICE -> gen.writeNumberField(field.jsonName, product.getPrice());
+                    case IMAGE_URL -> gen.writeStringField(field.jsonName, product.getImageUrl());
+                }
+            }
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.sb.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * Remembers tokens the wrapped decoder accepted, so a client reusing its token skips parsing and
+ * signature verification until the token expires. A hit still runs the claim validator, which should be
+ * the one the wrapped decoder uses, so {@code nbf}, issuer and audience checks hold for cached tokens; a
+ * token it rejects is dropped and handed to the wrapped decoder to report. Entries are keyed by the
+ * SHA-256 of the token and dropped at the token's {@code exp}; tokens without one are not cached. Lookups
+ * never lock. Once over {@code maxEntries}, one writer drops expired tokens and then the ones expiring
+ * soonest.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final JwtDecoder delegate;
+    private final OAuth2TokenValidator<Jwt> validator;
+    private final int maxEntries;
+    private final Clock clock;
+    private final ConcurrentHashMap<ByteBuffer, Jwt> verified = new ConcurrentHashMap<>();
+    private final ReentrantLock trimming = new ReentrantLock();
+
+    public CachingJwtDecoder(JwtDecoder delegate, OAuth2TokenValidator<Jwt> validator, int maxEntries) {
+        this(delegate, validator, maxEntries, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, OAuth2TokenValidator<Jwt> validator, int maxEntries, Clock clock) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Token cache size cannot be negative");
+        }
+        this.delegate = delegate;
+        this.validator = validator;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (maxEntries == 0 || token == null) {
+            return delegate.decode(token);
+        }
+        ByteBuffer key = hash(token);
+        Instant now = clock.instant();
+        Jwt cached = verified.get(key);
+        if (cached != null) {
+            if (now.isBefore(cached.getExpiresAt()) && !validator.validate(cached).hasErrors()) {
+                return cached;
+            }
+            verified.remove(key, cached);
+        }
+        Jwt jwt = delegate.decode(token);
+        if (jwt.getExpiresAt() != null && now.isBefore(jwt.getExpiresAt())) {
+            verified.put(key, jwt);
+            if (verified.size() > maxEntries) {
+                trim(now);
+            }
+        }
+        return jwt;
+    }
+
+    int size() { return verified.size(); }
+
+    // a writer already trimming covers for the others
+    private void trim(Instant now) {
+        if (!trimming.tryLock()) {
+            return;
+        }
+        try {
+            verified.values().removeIf(jwt -> !now.isBefore(jwt.getExpiresAt()));
+            int excess = verified.size() - (maxEntries - maxEntries / 10);
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<ByteBuffer, Jwt>> entries = new ArrayList<>(verified.entrySet());
+            entries.sort(Comparator.comparing(entry -> entry.getValue().getExpiresAt()));
+            for (int i = 0; i < excess && i < entries.size(); i++) {
+                verified.remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        } finally {
+            trimming.unlock();
+        }
+    }
+
+    private static ByteBuffer hash(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+}
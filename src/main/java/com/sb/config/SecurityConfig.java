@@ -1,18 +1,32 @@
 package com.sb.config;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Base64;
-import java.util.Objects;
+import java.util.List;
 
 import javax.crypto.spec.SecretKeySpec;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
@@ -38,7 +52,28 @@ public class SecurityConfig {
     @Value("${custom.client.secret}")
     private String clientSecret;
 
+    @Value("${custom.jwt.cache.max-entries:10000}")
+    private int jwtCacheSize;
+
+    // Prometheus cannot fetch a JWT, so the actuator gets its own chain: health is open, and the scrape
+    // endpoint takes the client credentials as HTTP Basic (Prometheus' basic_auth)
+    @Bean
+    @Order(1)
+    public SecurityFilterChain managementFilterChain(HttpSecurity http) throws Exception {
+        http
+            .securityMatcher(EndpointRequest.to(HealthEndpoint.class, PrometheusScrapeEndpoint.class))
+            .authorizeHttpRequests(auth -> auth
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                .anyRequest().authenticated())
+            .authenticationManager(this::authenticateClient)
+            .httpBasic(Customizer.withDefaults())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .csrf(csrf -> csrf.disable());
+        return http.build();
+    }
+
     @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
             .authorizeHttpRequests(auth -> auth
@@ -53,18 +88,36 @@ public class SecurityConfig {
 
     @Bean
     public JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withSecretKey(new SecretKeySpec(jwtSecret.getBytes(), "HmacSHA256")).build();
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withSecretKey(new SecretKeySpec(jwtSecret.getBytes(), "HmacSHA256")).build();
+        OAuth2TokenValidator<Jwt> validator = JwtValidators.createDefault();
+        decoder.setJwtValidator(validator);
+        return new CachingJwtDecoder(decoder, validator, jwtCacheSize);
+    }
+
+    private Authentication authenticateClient(Authentication authentication) {
+        String id = authentication.getName();
+        String secret = String.valueOf(authentication.getCredentials());
+        // both compared in full, as in ClientCredentialsFilter
+        if (!ClientCredentialsFilter.constantTimeEquals(id, clientId)
+            | !ClientCredentialsFilter.constantTimeEquals(secret, clientSecret)) {
+            throw new BadCredentialsException("Invalid client credentials");
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(id, null, List.of());
     }
 
     static class ClientCredentialsFilter extends BasicAuthenticationFilter {
         private static final Logger logger = LoggerFactory.getLogger(ClientCredentialsFilter.class);
         private final String clientId;
         private final String clientSecret;
+        // the header a client sending exactly these credentials sends, checked before any decoding
+        private final String expectedHeader;
 
         public ClientCredentialsFilter(String clientId, String clientSecret) {
             super(authentication -> authentication);
             this.clientId = clientId;
             this.clientSecret = clientSecret;
+            this.expectedHeader = "Basic " + Base64.getEncoder()
+                .encodeToString((clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8));
         }
 
         @Override
@@ -79,6 +132,11 @@ public class SecurityConfig {
                 return;
             }
 
+            if (authHeader != null && constantTimeEquals(authHeader, expectedHeader)) {
+                chain.doFilter(request, response);
+                return;
+            }
+
             if (authHeader == null || authHeader.isBlank()) {
                 logger.warn("Authorization header missing");
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Missing Authorization header");
@@ -101,7 +159,8 @@ public class SecurityConfig {
                 }
                 String id = values[0];
                 String secret = values[1];
-                if (!Objects.equals(id, clientId) || !Objects.equals(secret, clientSecret)) {
+                // both compared in full, so timing tells neither which one nor where they differ
+                if (!constantTimeEquals(id, clientId) | !constantTimeEquals(secret, clientSecret)) {
                     logger.warn("Client ID or secret mismatch");
                     response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid client credentials");
                     return;
@@ -115,5 +174,8 @@ public class SecurityConfig {
             chain.doFilter(request, response);
         }
 
+        private static boolean constantTimeEquals(String a, String b) {
+            return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+        }
     }
 }
@@ -0,0 +1,8 @@
+package com.sb.domain;
+
+import java.util.List;
+
+/**
+ * Results of one query of a batch search, best match first.
+ */
+public record BatchSearchResult(String query, List<Product> items) {}
@@ -0,0 +1,12 @@
+package com.sb.domain;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk ingest: how many products of each batch were stored or rejected by validation,
+ * and the totals.
+ */
+public record BulkIngestResult(List<Batch> batches, long accepted, long rejected) {
+
+    public record Batch(int batch, int accepted, int rejected) {}
+}
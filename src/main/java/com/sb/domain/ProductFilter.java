@@ -0,0 +1,22 @@
+package com.sb.domain;
+
+// null fields do not restrict; the category matches case insensitively, the price range inclusively
+public record ProductFilter(String category, Double minPrice, Double maxPrice) {
+
+    public static final ProductFilter NONE = new ProductFilter(null, null, null);
+
+    public ProductFilter {
+        if (category != null && category.trim().isEmpty()) {
+            category = null;
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("Min price cannot be above max price");
+        }
+    }
+
+    public boolean isEmpty() { return category == null && minPrice == null && maxPrice == null; }
+
+    public double lowestPrice() { return minPrice != null ? minPrice : Double.NEGATIVE_INFINITY; }
+
+    public double highestPrice() { return maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY; }
+}
@@ -0,0 +1,9 @@
+package com.sb.domain;
+
+import java.util.List;
+
+/**
+ * One page of products in catalog order, with the cursor to pass as {@code after} to get the next page,
+ * or null on the last page.
+ */
+public record ProductPage(List<Product> items, String nextCursor) {}
@@ -0,0 +1,13 @@
+package com.sb.domain;
+
+import java.time.Instant;
+
+/**
+ * Progress of a catalog reload: products stored in the new catalog so far, and once finished the
+ * products rejected by validation and how long it took.
+ */
+public record ReloadStatus(String id, State state, long loaded, long rejected, Instant startedAt,
+    Long durationMillis, String error) {
+
+    public enum State { RUNNING, COMPLETED, FAILED }
+}
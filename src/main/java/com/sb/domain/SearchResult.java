@@ -0,0 +1,9 @@
+package com.sb.domain;
+
+import java.util.List;
+
+/**
+ * Search results, best match first. Partial results come from a search that hit its deadline: they
+ * are the best of the products scored until then, not necessarily of the whole catalog.
+ */
+public record SearchResult(List<Product> items, boolean partial) {}
@@ -0,0 +1,42 @@
+package com.sb.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.sb.domain.Product;
+
+/**
+ * A catalog generation being built off to the side, products and every search index, while readers
+ * keep using the published catalog. Nothing becomes visible until the repository swaps the whole
+ * build in at once with {@link ProductCatalogRepositoryInterface#swapIn(CatalogBuild)}.
+ *
+ * A build is filled by one thread at a time and can be swapped in only once.
+ */
+public final class CatalogBuild {
+    private final CatalogGeneration generation;
+    private volatile boolean swappedIn;
+
+    CatalogBuild(final CatalogGeneration generation) {
+        this.generation = generation;
+    }
+
+    public void saveAll(final List<Product> productList) {
+        if (swappedIn) {
+            throw new IllegalStateException("Catalog build was already swapped in");
+        }
+        for (final Product product : productList) {
+            product.setId(UUID.randomUUID().toString());
+            generation.append(product);
+        }
+    }
+
+    public int size() { return generation.size(); }
+
+    CatalogGeneration swapIn() {
+        if (swappedIn) {
+            throw new IllegalStateException("Catalog build was already swapped in");
+        }
+        swappedIn = true;
+        return generation;
+    }
+}
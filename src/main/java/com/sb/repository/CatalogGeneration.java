@@ -0,0 +1,119 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.sb.domain.Product;
+import com.sb.service.SearchKeys;
+import com.sb.service.Tokenizer;
+
+/**
+ * Append-only products and search indices of one catalog generation. One writer at a time; readers go
+ * through the {@link CatalogSnapshot}s it publishes, which only see the ordinals below their size.
+ */
+final class CatalogGeneration {
+    private final CatalogIndexSettings settings;
+
+    private final ProductStorage storage;
+    // token ids of every name back to back, and per ordinal where its ids end
+    private int[] nameTokens = new int[64];
+    private int[] nameTokenEnds = new int[16];
+    private int size;
+
+    final NameBkTree nameTree = new NameBkTree();
+    final NGramIndex gramIndex;
+    final TermDictionary nameDictionary = new TermDictionary();
+    final TokenDictionary tokenDictionary = new TokenDictionary();
+    final SuggestionTrie suggestions = new SuggestionTrie(tokenDictionary);
+    final CategoryIndex categoryIndex = new CategoryIndex();
+    final PriceIndex priceIndex = new PriceIndex();
+
+    CatalogGeneration(final CatalogIndexSettings settings) {
+        this.settings = settings;
+        this.gramIndex = new NGramIndex(settings.gramSize());
+        this.storage = ProductStorage.create(settings);
+    }
+
+    CatalogIndexSettings settings() { return settings; }
+
+    int size() { return size; }
+
+    void append(final Product product) {
+        int ordinal = size;
+        if (ordinal == nameTokenEnds.length) {
+            nameTokenEnds = Arrays.copyOf(nameTokenEnds, ordinal * 2);
+        }
+        String name = SearchKeys.of(product.getName());
+        storage.append(ordinal, product, name);
+        int[] tokens = Tokenizer.tokens(name).stream().mapToInt(tokenDictionary::intern).toArray();
+        int start = ordinal == 0 ? 0 : nameTokenEnds[ordinal - 1];
+        if (start + tokens.length > nameTokens.length) {
+            nameTokens = Arrays.copyOf(nameTokens, Math.max(start + tokens.length, nameTokens.length * 2));
+        }
+        System.arraycopy(tokens, 0, nameTokens, start, tokens.length);
+        nameTokenEnds[ordinal] = start + tokens.length;
+        suggestions.add(tokens);
+
+        nameTree.add(ordinal, storage::searchName);
+        nameDictionary.add(ordinal, storage::searchName);
+        gramIndex.add(ordinal, name);
+        categoryIndex.add(ordinal, product.getCategory());
+        priceIndex.add(ordinal, product.getPrice());
+        if (settings.indexDescription() && product.getDescription() != null) {
+            gramIndex.add(ordinal, SearchKeys.of(product.getDescription()));
+        }
+        if (settings.indexCategory() && product.getCategory() != null) {
+            gramIndex.add(ordinal, SearchKeys.of(product.getCategory()));
+        }
+        size = ordinal + 1;
+    }
+
+    /**
+     * Writes the products and indices of this generation for {@link #read} to restore without replaying
+     * every append. Only the writer may call it.
+     */
+    void write(final DataOutputStream out) throws IOException {
+        int count = size;
+        out.writeInt(count);
+        storage.write(out, count);
+        int tokenCount = count == 0 ? 0 : nameTokenEnds[count - 1];
+        out.writeInt(tokenCount);
+        IndexCodec.writeInts(out, nameTokens, tokenCount);
+        IndexCodec.writeInts(out, nameTokenEnds, count);
+        tokenDictionary.write(out);
+        suggestions.write(out);
+        nameTree.write(out, count);
+        nameDictionary.write(out);
+        gramIndex.write(out);
+        categoryIndex.write(out);
+        priceIndex.write(out);
+    }
+
+    /**
+     * Restores what {@link #write} wrote into this empty generation, which must have the same settings.
+     * The products are the ones written to the segment with it, in ordinal order, if the storage keeps them.
+     */
+    void read(final ByteBuffer in, final Product[] products) {
+        int count = in.getInt();
+        storage.read(in, count, products);
+        int tokenCount = in.getInt();
+        nameTokens = IndexCodec.readInts(in, tokenCount, 64);
+        nameTokenEnds = IndexCodec.readInts(in, count, 16);
+        tokenDictionary.read(in);
+        suggestions.read(in);
+        nameTree.read(in);
+        nameDictionary.read(in);
+        gramIndex.read(in);
+        categoryIndex.read(in);
+        priceIndex.read(in);
+        size = count;
+    }
+
+    CatalogSnapshot publish(final long version) {
+        priceIndex.fold();
+        return new CatalogSnapshot(this, version, storage.publish(size), nameDictionary.terms(), nameTokens,
+            nameTokenEnds, size);
+    }
+}
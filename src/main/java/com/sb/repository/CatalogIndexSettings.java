@@ -0,0 +1,33 @@
+package com.sb.repository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// maxEdits bounds the n-gram shortlist; below minIndexedSize products every product is scored
+public record CatalogIndexSettings(int gramSize, boolean indexDescription, boolean indexCategory,
+    int maxEdits, int minIndexedSize, boolean columnar) {
+
+    public static final CatalogIndexSettings DEFAULTS = new CatalogIndexSettings(3, false, false, 2, 10_000, false);
+
+    public static CatalogIndexSettings of(final int gramSize, final String[] gramFields, final int maxEdits,
+        final int minIndexedSize) {
+        return of(gramSize, gramFields, maxEdits, minIndexedSize, "objects");
+    }
+
+    public static CatalogIndexSettings of(final int gramSize, final String[] gramFields, final int maxEdits,
+        final int minIndexedSize, final String layout) {
+        String normalizedLayout = layout.trim().toLowerCase(Locale.ROOT);
+        if (!normalizedLayout.equals("objects") && !normalizedLayout.equals("columnar")) {
+            throw new IllegalArgumentException("Unsupported catalog layout: " + layout);
+        }
+        List<String> fields = Arrays.stream(gramFields).map(f -> f.trim().toLowerCase(Locale.ROOT)).toList();
+        for (final String field : fields) {
+            if (!field.equals("name") && !field.equals("description") && !field.equals("category")) {
+                throw new IllegalArgumentException("Unsupported n-gram field: " + field);
+            }
+        }
+        return new CatalogIndexSettings(gramSize, fields.contains("description"), fields.contains("category"),
+            maxEdits, minIndexedSize, normalizedLayout.equals("columnar"));
+    }
+}
@@ -0,0 +1,242 @@
+package com.sb.repository;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+
+import com.sb.domain.Product;
+import com.sb.domain.ProductFilter;
+import com.sb.service.LevenshteinAutomaton;
+
+/**
+ * The catalog as of one version: the first {@link #size()} products by ordinal, in insertion order, and
+ * the search indices restricted to them. Published through a volatile field after each write batch.
+ */
+public final class CatalogSnapshot {
+    private final CatalogGeneration generation;
+    private final long version;
+    private final ProductTable table;
+    private final TermDictionary.Terms nameTerms;
+    private final int[] nameTokens;
+    private final int[] nameTokenEnds;
+    private final int size;
+
+    CatalogSnapshot(final CatalogGeneration generation, final long version, final ProductTable table,
+        final TermDictionary.Terms nameTerms, final int[] nameTokens, final int[] nameTokenEnds, final int size) {
+        this.generation = generation;
+        this.version = version;
+        this.table = table;
+        this.nameTerms = nameTerms;
+        this.nameTokens = nameTokens;
+        this.nameTokenEnds = nameTokenEnds;
+        this.size = size;
+    }
+
+    public long version() { return version; }
+
+    public int size() { return size; }
+
+    // with the columnar layout, a fresh copy on every call
+    public Product product(final int ordinal) { return table.product(ordinal); }
+
+    public CharSequence searchName(final int ordinal) { return table.searchName(ordinal); }
+
+    public int nameTokensStart(final int ordinal) { return ordinal == 0 ? 0 : nameTokenEnds[ordinal - 1]; }
+
+    public int nameTokensEnd(final int ordinal) { return nameTokenEnds[ordinal]; }
+
+    public int nameToken(final int index) { return nameTokens[index]; }
+
+    public int tokenCount() { return generation.tokenDictionary.size(); }
+
+    public String token(final int id) { return generation.tokenDictionary.token(id); }
+
+    public List<Product> products() {
+        return new ProductList();
+    }
+
+    public Optional<Product> findById(final String id) {
+        int ordinal = ordinalOf(id);
+        return ordinal >= 0 ? Optional.of(table.product(ordinal)) : Optional.empty();
+    }
+
+    public List<Product> productsAfter(final String id, final int limit) {
+        int ordinal = ordinalOf(id);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Unknown cursor: " + id);
+        }
+        int from = ordinal + 1;
+        return products().subList(from, (int) Math.min((long) from + limit, size));
+    }
+
+    public List<Product> productsAfter(final String id, final int limit, final ProductFilter filter) {
+        int[] ordinals = filter(filter);
+        if (ordinals == null) {
+            return id == null || id.isEmpty() ? products().subList(0, Math.min(limit, size)) : productsAfter(id, limit);
+        }
+        int from = 0;
+        if (id != null && !id.isEmpty()) {
+            int ordinal = ordinalOf(id);
+            if (ordinal < 0) {
+                throw new IllegalArgumentException("Unknown cursor: " + id);
+            }
+            from = Arrays.binarySearch(ordinals, ordinal + 1);
+            from = from >= 0 ? from : -from - 1;
+        }
+        return products(ordinals, from, (int) Math.min((long) from + limit, ordinals.length));
+    }
+
+    public List<Product> products(final int[] ordinals, final int from, final int to) {
+        List<Product> products = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            products.add(table.product(ordinals[i]));
+        }
+        return products;
+    }
+
+    // null for an empty filter
+    public int[] filter(final ProductFilter filter) {
+        if (filter.isEmpty()) {
+            return null;
+        }
+        if (filter.category() == null) {
+            int[] ordinals = generation.priceIndex.range(filter.lowestPrice(), filter.highestPrice(), size, ordinal -> true);
+            Arrays.sort(ordinals);
+            return ordinals;
+        }
+        int[] ordinals = generation.categoryIndex.ordinals(filter.category(), size);
+        if (filter.minPrice() == null && filter.maxPrice() == null) {
+            return ordinals;
+        }
+        int count = 0;
+        for (final int ordinal : ordinals) {
+            double price = generation.priceIndex.price(ordinal);
+            if (price >= filter.lowestPrice() && price <= filter.highestPrice()) {
+                ordinals[count++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(ordinals, count);
+    }
+
+    public int[] sortedByPrice(final ProductFilter filter, final boolean descending) {
+        long[] category = filter.category() != null ? generation.categoryIndex.bits(filter.category()) : null;
+        int[] ordinals = generation.priceIndex.range(filter.lowestPrice(), filter.highestPrice(), size,
+            category != null ? ordinal -> CategoryIndex.contains(category, ordinal) : ordinal -> true);
+        if (descending) {
+            reverse(ordinals, 0, ordinals.length);
+            // equal prices back in insertion order
+            for (int from = 0, to; from < ordinals.length; from = to) {
+                to = from + 1;
+                double price = generation.priceIndex.price(ordinals[from]);
+                while (to < ordinals.length && generation.priceIndex.price(ordinals[to]) == price) {
+                    to++;
+                }
+                reverse(ordinals, from, to);
+            }
+        }
+        return ordinals;
+    }
+
+    private static void reverse(final int[] values, final int from, final int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int swapped = values[i];
+            values[i] = values[j];
+            values[j] = swapped;
+        }
+    }
+
+    private int ordinalOf(final String id) {
+        int ordinal = id != null ? table.ordinalOf(id) : -1;
+        return ordinal < size ? ordinal : -1;
+    }
+
+    // null when every product has to be scored
+    public int[] searchCandidates(final String normalizedQuery) {
+        CatalogIndexSettings settings = generation.settings();
+        if (size < settings.minIndexedSize()) {
+            return null;
+        }
+        return generation.gramIndex.candidates(normalizedQuery, settings.maxEdits(), size);
+    }
+
+    public int candidateEdits() { return generation.settings().maxEdits(); }
+
+    // popularity may count products added after this snapshot
+    public List<String> suggest(final String normalizedPrefix, final int limit) {
+        return generation.suggestions.complete(normalizedPrefix, limit);
+    }
+
+    public List<NameMatch> findByNameWithin(final String normalizedName, final int maxDistance) {
+        return toMatches(generation.nameTree.findWithin(normalizedName, maxDistance, size, table::searchName));
+    }
+
+    public List<NameMatch> findNearestByName(final String normalizedName, final int limit) {
+        return toMatches(generation.nameTree.findNearest(normalizedName, limit, size, table::searchName));
+    }
+
+    // within is ascending, or null for every ordinal
+    public List<NameMatch> findNearestByName(final String normalizedName, final int limit, final int[] within) {
+        return toMatches(generation.nameTree.findNearest(normalizedName, limit, size, membership(within), table::searchName));
+    }
+
+    public List<NameMatch> findByNameAutomaton(final String normalizedQuery, final int maxEdits) {
+        return findByNameAutomaton(normalizedQuery, maxEdits, null);
+    }
+
+    public List<NameMatch> findByNameAutomaton(final String normalizedQuery, final int maxEdits, final int[] within) {
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(normalizedQuery, maxEdits);
+        IntPredicate accepted = membership(within);
+        long[][] hits = { new long[16] };
+        int[] hitCount = new int[1];
+        nameTerms.intersect(automaton, size, table::searchName, (ordinal, distance) -> {
+            if (!accepted.test(ordinal)) {
+                return;
+            }
+            if (hitCount[0] == hits[0].length) {
+                hits[0] = Arrays.copyOf(hits[0], hitCount[0] * 2);
+            }
+            hits[0][hitCount[0]++] = NameBkTree.pack(distance, ordinal);
+        });
+        long[] sorted = Arrays.copyOf(hits[0], hitCount[0]);
+        Arrays.sort(sorted);
+        return toMatches(sorted);
+    }
+
+    private IntPredicate membership(final int[] ordinals) {
+        if (ordinals == null) {
+            return ordinal -> true;
+        }
+        BitSet members = new BitSet(size);
+        for (final int ordinal : ordinals) {
+            members.set(ordinal);
+        }
+        return members::get;
+    }
+
+    // matches are packed as distance << 32 | ordinal
+    private List<NameMatch> toMatches(final long[] packed) {
+        List<NameMatch> matches = new ArrayList<>(packed.length);
+        for (final long match : packed) {
+            matches.add(new NameMatch(table.product((int) match), (int) (match >>> 32)));
+        }
+        return matches;
+    }
+
+    private final class ProductList extends AbstractList<Product> implements RandomAccess {
+        @Override
+        public Product get(final int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return table.product(index);
+        }
+
+        @Override
+        public int size() { return size; }
+    }
+}
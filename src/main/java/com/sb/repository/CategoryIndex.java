@@ -0,0 +1,101 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sb.service.SearchKeys;
+
+/**
+ * Ordinal bitmap per category, keyed by {@link SearchKeys}. One writer at a time; bitmaps grow by copy
+ * and readers ignore bits at or above their bound.
+ */
+public class CategoryIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private static final class Bitmap {
+        volatile long[] words = new long[1];
+    }
+
+    private final Map<String, Bitmap> bitmaps = new ConcurrentHashMap<>();
+
+    public int categoryCount() { return bitmaps.size(); }
+
+    public void add(final int ordinal, final String category) {
+        if (category == null) {
+            return;
+        }
+        Bitmap bitmap = bitmaps.computeIfAbsent(normalize(category), c -> new Bitmap());
+        long[] words = bitmap.words;
+        int word = ordinal >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        words[word] |= 1L << ordinal;
+        bitmap.words = words;
+    }
+
+    void write(final DataOutputStream out) throws IOException {
+        out.writeInt(bitmaps.size());
+        for (final Map.Entry<String, Bitmap> entry : bitmaps.entrySet()) {
+            long[] words = entry.getValue().words;
+            ProductCodec.writeString(out, entry.getKey());
+            out.writeInt(words.length);
+            IndexCodec.writeLongs(out, words, words.length);
+        }
+    }
+
+    // into an empty index
+    void read(final ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String category = IndexCodec.readString(in);
+            Bitmap bitmap = new Bitmap();
+            int words = in.getInt();
+            bitmap.words = IndexCodec.readLongs(in, words, 1);
+            bitmaps.put(category, bitmap);
+        }
+    }
+
+    public int[] ordinals(final String category, final int upTo) {
+        long[] words = bits(category);
+        int wordCount = Math.min(words.length, (upTo + 63) >>> 6);
+        int count = 0;
+        for (int w = 0; w < wordCount; w++) {
+            count += Long.bitCount(masked(words, w, upTo));
+        }
+        int[] ordinals = new int[count];
+        int n = 0;
+        for (int w = 0; w < wordCount; w++) {
+            long bits = masked(words, w, upTo);
+            while (bits != 0) {
+                ordinals[n++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return ordinals;
+    }
+
+    long[] bits(final String category) {
+        Bitmap bitmap = category != null ? bitmaps.get(normalize(category)) : null;
+        return bitmap != null ? bitmap.words : EMPTY;
+    }
+
+    static boolean contains(final long[] words, final int ordinal) {
+        int word = ordinal >>> 6;
+        return word < words.length && (words[word] & (1L << ordinal)) != 0;
+    }
+
+    private static long masked(final long[] words, final int word, final int upTo) {
+        int end = upTo - (word << 6);
+        return end >= Long.SIZE ? words[word] : words[word] & ((1L << end) - 1);
+    }
+
+    private static String normalize(final String category) {
+        return SearchKeys.of(category);
+    }
+}
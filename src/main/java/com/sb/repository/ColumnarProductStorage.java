@@ -0,0 +1,289 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import com.sb.domain.Product;
+
+/**
+ * Products as columns: text as varint-prefixed UTF-8 in one byte arena, search names as Latin-1 unless
+ * flagged wide, ids as UUID halves. Reads materialize a fresh {@link Product}. Ids must be UUIDs.
+ */
+final class ColumnarProductStorage implements ProductStorage {
+
+    private static final int MAX_ARENA = Integer.MAX_VALUE - 8;
+
+    // arenas only ever grow by copy, so a published array never changes below its published length
+    private byte[] records = new byte[4096];
+    private int recordsLength;
+    private byte[] searchNames = new byte[1024];
+    private int searchNamesLength;
+
+    // per ordinal: where its record and search name end, the previous ordinal's end being the start
+    private int[] recordEnds = new int[16];
+    private int[] searchNameEnds = new int[16];
+    // one bit per ordinal whose search name is stored as two bytes per char
+    private long[] wideSearchNames = new long[1];
+    private double[] prices = new double[16];
+    private int[] categories = new int[16];
+    private long[] idHigh = new long[16];
+    private long[] idLow = new long[16];
+
+    private String[] categoryNames = new String[16];
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    private final UuidOrdinalIndex ordinalById = new UuidOrdinalIndex();
+
+    @Override
+    public void append(final int ordinal, final Product product, final String searchName) {
+        UUID id = parseId(product.getId());
+        if (ordinal == prices.length) {
+            int capacity = ordinal * 2;
+            recordEnds = Arrays.copyOf(recordEnds, capacity);
+            searchNameEnds = Arrays.copyOf(searchNameEnds, capacity);
+            wideSearchNames = Arrays.copyOf(wideSearchNames, (capacity + 63) >>> 6);
+            prices = Arrays.copyOf(prices, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+        }
+        appendText(product.getName());
+        appendText(product.getDescription());
+        appendText(product.getImageUrl());
+        recordEnds[ordinal] = recordsLength;
+        appendSearchName(ordinal, searchName);
+
+        prices[ordinal] = product.getPrice();
+        categories[ordinal] = categoryId(product.getCategory());
+        idHigh[ordinal] = id.getMostSignificantBits();
+        idLow[ordinal] = id.getLeastSignificantBits();
+        ordinalById.put(idHigh, idLow, ordinal);
+    }
+
+    @Override
+    public CharSequence searchName(final int ordinal) {
+        return searchName(searchNames, searchNameEnds, wideSearchNames, ordinal);
+    }
+
+    @Override
+    public ProductTable publish(final int size) {
+        return new Table(size, records, recordEnds, searchNames, searchNameEnds, wideSearchNames, prices, categories,
+            idHigh, idLow, categoryNames, ordinalById);
+    }
+
+    // every column, payload included, so a restore never decodes a record
+    @Override
+    public void write(final DataOutputStream out, final int size) throws IOException {
+        out.writeInt(recordsLength);
+        out.write(records, 0, recordsLength);
+        out.writeInt(searchNamesLength);
+        out.write(searchNames, 0, searchNamesLength);
+        out.writeInt(size);
+        IndexCodec.writeInts(out, recordEnds, size);
+        IndexCodec.writeInts(out, searchNameEnds, size);
+        IndexCodec.writeLongs(out, wideSearchNames, (size + 63) >>> 6);
+        IndexCodec.writeDoubles(out, prices, size);
+        IndexCodec.writeInts(out, categories, size);
+        IndexCodec.writeLongs(out, idHigh, size);
+        IndexCodec.writeLongs(out, idLow, size);
+        out.writeInt(categoryIds.size());
+        for (int id = 0; id < categoryIds.size(); id++) {
+            ProductCodec.writeString(out, categoryNames[id]);
+        }
+        ordinalById.write(out);
+    }
+
+    @Override
+    public void read(final ByteBuffer in, final int size, final Product[] segmentProducts) {
+        recordsLength = in.getInt();
+        records = IndexCodec.readBytes(in, recordsLength, 4096);
+        searchNamesLength = in.getInt();
+        searchNames = IndexCodec.readBytes(in, searchNamesLength, 1024);
+        int count = in.getInt();
+        int capacity = Math.max(16, count);
+        recordEnds = IndexCodec.readInts(in, count, capacity);
+        searchNameEnds = IndexCodec.readInts(in, count, capacity);
+        wideSearchNames = IndexCodec.readLongs(in, (count + 63) >>> 6, (capacity + 63) >>> 6);
+        prices = IndexCodec.readDoubles(in, count, capacity);
+        categories = IndexCodec.readInts(in, count, capacity);
+        idHigh = IndexCodec.readLongs(in, count, capacity);
+        idLow = IndexCodec.readLongs(in, count, capacity);
+        int categoryCount = in.getInt();
+        categoryNames = new String[Math.max(16, categoryCount)];
+        for (int id = 0; id < categoryCount; id++) {
+            categoryNames[id] = IndexCodec.readString(in);
+            categoryIds.put(categoryNames[id], id);
+        }
+        ordinalById.read(in);
+    }
+
+    // null is a zero length; any other text is its UTF-8 length plus one
+    private void appendText(final String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        records = ensureCapacity(records, recordsLength, 5 + bytes.length);
+        int length = value != null ? bytes.length + 1 : 0;
+        while ((length & ~0x7F) != 0) {
+            records[recordsLength++] = (byte) (length & 0x7F | 0x80);
+            length >>>= 7;
+        }
+        records[recordsLength++] = (byte) length;
+        System.arraycopy(bytes, 0, records, recordsLength, bytes.length);
+        recordsLength += bytes.length;
+    }
+
+    private void appendSearchName(final int ordinal, final String searchName) {
+        boolean wide = searchName.chars().anyMatch(c -> c > 0xFF);
+        int length = searchName.length();
+        searchNames = ensureCapacity(searchNames, searchNamesLength, wide ? 2 * length : length);
+        for (int i = 0; i < length; i++) {
+            char c = searchName.charAt(i);
+            if (wide) {
+                searchNames[searchNamesLength++] = (byte) (c >>> 8);
+            }
+            searchNames[searchNamesLength++] = (byte) c;
+        }
+        searchNameEnds[ordinal] = searchNamesLength;
+        if (wide) {
+            wideSearchNames[ordinal >>> 6] |= 1L << ordinal;
+        }
+    }
+
+    private int categoryId(final String category) {
+        if (category == null) {
+            return -1;
+        }
+        Integer id = categoryIds.get(category);
+        if (id == null) {
+            id = categoryIds.size();
+            if (id == categoryNames.length) {
+                categoryNames = Arrays.copyOf(categoryNames, id * 2);
+            }
+            categoryNames[id] = category;
+            categoryIds.put(category, id);
+        }
+        return id;
+    }
+
+    private static byte[] ensureCapacity(final byte[] arena, final int length, final int extra) {
+        if ((long) length + extra > MAX_ARENA) {
+            throw new IllegalStateException("Product arena is full");
+        }
+        if (length + extra <= arena.length) {
+            return arena;
+        }
+        return Arrays.copyOf(arena, (int) Math.min(MAX_ARENA, Math.max((long) length + extra, arena.length * 2L)));
+    }
+
+    private static CharSequence searchName(final byte[] arena, final int[] ends, final long[] wide, final int ordinal) {
+        int start = ordinal == 0 ? 0 : ends[ordinal - 1];
+        boolean twoBytes = (wide[ordinal >>> 6] & (1L << ordinal)) != 0;
+        return new ArenaString(arena, start, (ends[ordinal] - start) >> (twoBytes ? 1 : 0), twoBytes);
+    }
+
+    private static UUID parseId(final String id) {
+        UUID uuid = canonicalUuid(id);
+        if (uuid == null) {
+            throw new IllegalArgumentException("Columnar catalog needs UUID product ids: " + id);
+        }
+        return uuid;
+    }
+
+    // UUID.fromString also accepts shortened forms, which would not round-trip to the same id
+    private static UUID canonicalUuid(final String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equalsIgnoreCase(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private record Table(int size, byte[] records, int[] recordEnds, byte[] searchNames, int[] searchNameEnds,
+        long[] wideSearchNames, double[] prices, int[] categories, long[] idHigh, long[] idLow, String[] categoryNames,
+        UuidOrdinalIndex ordinalById) implements ProductTable {
+
+        @Override
+        public Product product(final int ordinal) {
+            int[] position = { ordinal == 0 ? 0 : recordEnds[ordinal - 1] };
+            Product product = new Product();
+            product.setId(new UUID(idHigh[ordinal], idLow[ordinal]).toString());
+            product.setName(text(position));
+            int category = categories[ordinal];
+            product.setCategory(category < 0 ? null : categoryNames[category]);
+            product.setPrice(prices[ordinal]);
+            product.setDescription(text(position));
+            product.setImageUrl(text(position));
+            return product;
+        }
+
+        @Override
+        public CharSequence searchName(final int ordinal) {
+            return ColumnarProductStorage.searchName(searchNames, searchNameEnds, wideSearchNames, ordinal);
+        }
+
+        @Override
+        public int ordinalOf(final String id) {
+            UUID uuid = canonicalUuid(id);
+            return uuid == null ? -1
+                : ordinalById.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), idHigh, idLow, size);
+        }
+
+        // reads the text at position[0] and moves it past
+        private String text(final int[] position) {
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = records[position[0]++];
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (length == 0) {
+                return null;
+            }
+            String text = new String(records, position[0], length - 1, StandardCharsets.UTF_8);
+            position[0] += length - 1;
+            return text;
+        }
+    }
+
+    private record ArenaString(byte[] arena, int start, int length, boolean wide) implements CharSequence {
+
+        @Override
+        public char charAt(final int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+            }
+            if (wide) {
+                int at = start + 2 * index;
+                return (char) ((arena[at] & 0xFF) << 8 | arena[at + 1] & 0xFF);
+            }
+            return (char) (arena[start + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(final int from, final int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            if (wide) {
+                char[] chars = new char[length];
+                for (int i = 0; i < length; i++) {
+                    chars[i] = charAt(i);
+                }
+                return new String(chars);
+            }
+            return new String(arena, start, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
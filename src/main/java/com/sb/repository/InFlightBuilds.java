@@ -0,0 +1,45 @@
+package com.sb.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.sb.domain.Product;
+
+/**
+ * Products saved to the live catalog while builds are in flight, replayed onto a build's generation
+ * when it is swapped in so that acknowledged writes survive a reload. Builds that are abandoned are
+ * only weakly held. Not thread-safe; used under the repository lock.
+ */
+final class InFlightBuilds {
+    private final Map<CatalogBuild, List<Product>> writes = new WeakHashMap<>();
+
+    CatalogBuild track(final CatalogBuild build) {
+        writes.put(build, new ArrayList<>());
+        return build;
+    }
+
+    void record(final List<Product> products) {
+        for (final List<Product> pending : writes.values()) {
+            pending.addAll(products);
+        }
+    }
+
+    void clear() {
+        for (final List<Product> pending : writes.values()) {
+            pending.clear();
+        }
+    }
+
+    /** Swaps the build in and appends the products saved since it started. */
+    CatalogGeneration swapIn(final CatalogBuild build) {
+        CatalogGeneration generation = build.swapIn();
+        List<Product> pending = writes.remove(build);
+        for (final Product product : pending != null ? pending : Collections.<Product>emptyList()) {
+            generation.append(product);
+        }
+        return generation;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Array sections of the persisted catalog index. Callers write the element count themselves; reads are
+ * relative, copy in bulk and return arrays of at least the capacity asked for, so they can keep growing.
+ */
+final class IndexCodec {
+
+    private IndexCodec() {}
+
+    static void writeInts(final DataOutputStream out, final int[] values, final int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    static void writeLongs(final DataOutputStream out, final long[] values, final int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeLong(values[i]);
+        }
+    }
+
+    static void writeDoubles(final DataOutputStream out, final double[] values, final int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(values[i]);
+        }
+    }
+
+    static int[] readInts(final ByteBuffer in, final int count, final int capacity) {
+        int[] values = new int[Math.max(count, capacity)];
+        in.asIntBuffer().get(values, 0, count);
+        in.position(in.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    static long[] readLongs(final ByteBuffer in, final int count, final int capacity) {
+        long[] values = new long[Math.max(count, capacity)];
+        in.asLongBuffer().get(values, 0, count);
+        in.position(in.position() + count * Long.BYTES);
+        return values;
+    }
+
+    static double[] readDoubles(final ByteBuffer in, final int count, final int capacity) {
+        double[] values = new double[Math.max(count, capacity)];
+        in.asDoubleBuffer().get(values, 0, count);
+        in.position(in.position() + count * Double.BYTES);
+        return values;
+    }
+
+    static byte[] readBytes(final ByteBuffer in, final int count, final int capacity) {
+        byte[] values = new byte[Math.max(count, capacity)];
+        in.get(values, 0, count);
+        return values;
+    }
+
+    // strings as in ProductCodec
+    static String readString(final ByteBuffer in) {
+        String value = ProductCodec.readString(in, in.position());
+        in.position(ProductCodec.skipString(in, in.position()));
+        return value;
+    }
+}
@@ -0,0 +1,442 @@
+package com.sb.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.sb.domain.Product;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Catalog repository that survives restarts. The catalog lives in a compact binary segment file that
+ * is memory-mapped on startup, plus an append-only log of the products saved since the segment was
+ * written. Products from the segment keep their description and image url in the mapping until first
+ * read, so the bulk of the payload stays off-heap. Replacing the catalog copies the old products' mapped
+ * fields to the heap for readers still holding them and then unmaps the segment.
+ *
+ * Writing a segment also writes its search indices to an index file tagged with the segment's epoch and
+ * the index settings. Startup copies them back in bulk instead of rebuilding them, and rebuilds and
+ * rewrites an index that is missing, stale or unreadable. Startup is still linear in the catalog size,
+ * just far cheaper per product: the objects layout decodes every record's id, name, category and price
+ * to hold its products, and the columnar layout copies its columns, payload included, from the index
+ * to the heap, where that layout keeps them.
+ *
+ * Every save is written and forced to the log before it becomes visible. Clearing the catalog and
+ * swapping in a build rewrite the segment and reset the log, and so does a startup that replayed a
+ * log. Segment and log carry an epoch so that a log written against an older segment is ignored
+ * after a crash between the two steps; a torn record at the end of the log is dropped.
+ *
+ * Segments and logs are mapped in one piece and so are limited to 2 GB together, since compaction
+ * folds one into the other. A save that would outgrow that fails with an error saying so and leaves
+ * the files as they were.
+ */
+@Repository
+@ConditionalOnProperty(name = "catalog.store.type", havingValue = "mapped")
+public class MappedProductCatalogRepository implements ProductCatalogRepositoryInterface, Closeable {
+    static final String SEGMENT_FILE = "catalog.segment";
+    static final String LOG_FILE = "catalog.log";
+    static final String INDEX_FILE = "catalog.index";
+    private static final Logger logger = LoggerFactory.getLogger(MappedProductCatalogRepository.class);
+
+    private static final int SEGMENT_MAGIC = 0x50435347;
+    private static final int LOG_MAGIC = 0x50434c47;
+    private static final int INDEX_MAGIC = 0x50434958;
+    private static final int SEGMENT_HEADER = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int LOG_HEADER = Integer.BYTES + Long.BYTES;
+    private static final int INDEX_HEADER = Integer.BYTES + Long.BYTES + 3 * Integer.BYTES;
+    static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+
+    private final CatalogIndexSettings settings;
+    private final Path segmentPath;
+    private final Path logPath;
+    private final Path indexPath;
+    private final long maxMappedBytes;
+
+    // written only under the repository lock; readers only ever see published snapshots
+    private CatalogGeneration generation;
+    private long version;
+    private long epoch;
+    private FileChannel log;
+    // the mapping the current generation's products read from, if any
+    private MappedSegment segment;
+    private long segmentBytes;
+    private volatile CatalogSnapshot snapshot;
+    private final InFlightBuilds builds = new InFlightBuilds();
+
+    @Autowired
+    public MappedProductCatalogRepository(@Value("${catalog.store.directory:data}") final String directory,
+        @Value("${catalog.search.ngram.size:3}") final int gramSize,
+        @Value("${catalog.search.ngram.fields:name}") final String[] gramFields,
+        @Value("${catalog.search.ngram.max-edits:2}") final int maxEdits,
+        @Value("${catalog.search.ngram.min-catalog-size:10000}") final int minIndexedSize,
+        @Value("${catalog.store.layout:objects}") final String layout) {
+        this(Path.of(directory), CatalogIndexSettings.of(gramSize, gramFields, maxEdits, minIndexedSize, layout));
+    }
+
+    public MappedProductCatalogRepository(final Path directory, final CatalogIndexSettings settings) {
+        this(directory, settings, MAX_MAPPED_BYTES);
+    }
+
+    MappedProductCatalogRepository(final Path directory, final CatalogIndexSettings settings, final long maxMappedBytes) {
+        this.settings = settings;
+        this.segmentPath = directory.resolve(SEGMENT_FILE);
+        this.logPath = directory.resolve(LOG_FILE);
+        this.indexPath = directory.resolve(INDEX_FILE);
+        this.maxMappedBytes = maxMappedBytes;
+        this.generation = new CatalogGeneration(settings);
+        try {
+            Files.createDirectories(directory);
+            boolean indexed = loadSegment();
+            if (replayLog() > 0) {
+                compact();
+            } else if (!indexed) {
+                writeIndex();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open catalog store in " + directory, e);
+        }
+        this.snapshot = generation.publish(version);
+    }
+
+    public CatalogSnapshot snapshot() { return snapshot; }
+
+    public List<Product> findAll() { return snapshot.products(); }
+
+    public Optional<Product> findById(final String id) { return snapshot.findById(id); }
+
+    public List<Product> findAfter(final String afterId, final int limit) {
+        CatalogSnapshot current = snapshot;
+        if (afterId == null || afterId.isEmpty()) {
+            return current.products().subList(0, Math.min(limit, current.size()));
+        }
+        return current.productsAfter(afterId, limit);
+    }
+
+    public synchronized Product save(final Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        product.setId(UUID.randomUUID().toString());
+        appendToLog(List.of(product));
+        generation.append(product);
+        builds.record(List.of(product));
+        snapshot = generation.publish(++version);
+        return product;
+    }
+
+    public synchronized void clear() {
+        unmapSegment();
+        generation = new CatalogGeneration(settings);
+        builds.clear();
+        compactUnchecked();
+        snapshot = generation.publish(++version);
+    }
+
+    public synchronized void saveAll(final List<Product> productList) {
+        for (final Product product : productList) {
+            product.setId(UUID.randomUUID().toString());
+        }
+        appendToLog(productList);
+        for (final Product product : productList) {
+            generation.append(product);
+        }
+        builds.record(productList);
+        snapshot = generation.publish(++version);
+    }
+
+    public synchronized CatalogBuild startBuild() {
+        return builds.track(new CatalogBuild(new CatalogGeneration(settings)));
+    }
+
+    /**
+     * Replaces the catalog with a finished build and rewrites the segment from it. Readers holding the
+     * previous snapshot keep it; products saved since the build started are carried over onto the
+     * build.
+     */
+    public synchronized void swapIn(final CatalogBuild build) {
+        unmapSegment();
+        generation = builds.swapIn(build);
+        compactUnchecked();
+        snapshot = generation.publish(++version);
+    }
+
+    @PreDestroy
+    @Override
+    public synchronized void close() throws IOException {
+        // products still held by callers lose their description and image url from here on
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    // returns false when the segment's indices had to be rebuilt rather than read back
+    private boolean loadSegment() throws IOException {
+        if (!Files.exists(segmentPath)) {
+            return true;
+        }
+        MappedSegment mapped = MappedSegment.map(segmentPath, maxMappedBytes);
+        ByteBuffer buffer = mapped.buffer();
+        if (buffer.limit() < SEGMENT_HEADER || buffer.getInt(0) != SEGMENT_MAGIC) {
+            mapped.close();
+            throw new IOException("Not a catalog segment: " + segmentPath);
+        }
+        epoch = buffer.getLong(Integer.BYTES);
+        segmentBytes = buffer.limit();
+        int count = buffer.getInt(Integer.BYTES + Long.BYTES);
+        // the columnar layout restores its own copy of every field
+        Product[] products = settings.columnar() ? null : new Product[count];
+        int offset = SEGMENT_HEADER;
+        for (int i = 0; products != null && i < count; i++) {
+            products[i] = ProductCodec.readLazily(mapped, offset);
+            offset = ProductCodec.skip(buffer, offset);
+        }
+        CatalogGeneration restored = readIndex(count, products);
+        if (restored != null) {
+            generation = restored;
+        } else if (products != null) {
+            for (final Product product : products) {
+                generation.append(product);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                generation.append(ProductCodec.read(buffer, offset));
+                offset = ProductCodec.skip(buffer, offset);
+            }
+        }
+        if (settings.columnar()) {
+            mapped.close();
+        } else {
+            segment = mapped;
+        }
+        return restored != null;
+    }
+
+    // the generation written with the current segment, or null if the index is missing, stale or unreadable
+    private CatalogGeneration readIndex(final int count, final Product[] products) throws IOException {
+        if (!Files.exists(indexPath) || Files.size(indexPath) > maxMappedBytes) {
+            return null;
+        }
+        MappedSegment mapped = MappedSegment.map(indexPath, maxMappedBytes);
+        try {
+            ByteBuffer in = mapped.buffer().duplicate();
+            if (in.limit() < INDEX_HEADER || in.getInt() != INDEX_MAGIC || in.getLong() != epoch || in.getInt() != count
+                || in.getInt() != settings.gramSize() || in.getInt() != indexFlags()) {
+                return null;
+            }
+            CatalogGeneration restored = new CatalogGeneration(settings);
+            restored.read(in, products);
+            return restored;
+        } catch (RuntimeException e) {
+            logger.warn("Catalog index {} is unreadable, rebuilding it", indexPath, e);
+            return null;
+        } finally {
+            mapped.close();
+        }
+    }
+
+    // the settings an index depends on besides the gram size
+    private int indexFlags() {
+        return (settings.indexDescription() ? 1 : 0) | (settings.indexCategory() ? 2 : 0) | (settings.columnar() ? 4 : 0);
+    }
+
+    /**
+     * Writes the current generation's indices for the current segment epoch. The index only saves
+     * startup work, so failing to write it, or an index too large to map, leaves no index behind and a
+     * warning instead of failing the write that compacted.
+     */
+    private void writeIndex() {
+        Path temporary = indexPath.resolveSibling(INDEX_FILE + ".tmp");
+        try {
+            Files.deleteIfExists(indexPath);
+            boolean fits;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                out.writeInt(INDEX_MAGIC);
+                out.writeLong(epoch);
+                out.writeInt(generation.size());
+                out.writeInt(settings.gramSize());
+                out.writeInt(indexFlags());
+                generation.write(out);
+                out.flush();
+                fits = channel.size() <= maxMappedBytes;
+                if (fits) {
+                    channel.force(true);
+                }
+            }
+            if (!fits) {
+                logger.warn("Catalog index is over the {} bytes a single mapping can hold, startup will rebuild it",
+                    maxMappedBytes);
+                Files.delete(temporary);
+                return;
+            }
+            Files.move(temporary, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Cannot write catalog index {}, startup will rebuild it", indexPath, e);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // a leftover temporary file is overwritten by the next index
+            }
+        }
+    }
+
+    // copies what readers may still need from the mapping to the heap before unmapping it
+    private void unmapSegment() {
+        if (segment == null) {
+            return;
+        }
+        for (final Product product : generation.publish(version).products()) {
+            if (product instanceof ProductCodec.MappedProduct mapped) {
+                mapped.detach();
+            }
+        }
+        segment.close();
+        segment = null;
+    }
+
+    // appends the log's products and returns how many there were
+    private int replayLog() throws IOException {
+        if (!Files.exists(logPath)) {
+            resetLog();
+            return 0;
+        }
+        int replayed = 0;
+        long validEnd = LOG_HEADER;
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxMappedBytes) {
+                throw new IOException("Catalog log " + logPath + " is " + size + " bytes, over the "
+                    + maxMappedBytes + " bytes a single mapping can hold");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < LOG_HEADER || buffer.getInt(0) != LOG_MAGIC || buffer.getLong(Integer.BYTES) != epoch) {
+                // written against another segment, or never got its header
+                resetLog();
+                return 0;
+            }
+            int offset = LOG_HEADER;
+            while (offset + Integer.BYTES <= size) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || offset + Integer.BYTES + (long) length > size) {
+                    break;
+                }
+                generation.append(ProductCodec.read(buffer, offset + Integer.BYTES));
+                offset += Integer.BYTES + length;
+                replayed++;
+            }
+            validEnd = offset;
+        }
+        log = FileChannel.open(logPath, StandardOpenOption.WRITE);
+        log.truncate(validEnd);
+        log.position(validEnd);
+        return replayed;
+    }
+
+    private void appendToLog(final List<Product> productList) {
+        try {
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(records);
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            for (final Product product : productList) {
+                record.reset();
+                ProductCodec.write(new DataOutputStream(record), product);
+                out.writeInt(record.size());
+                record.writeTo(out);
+            }
+            // compaction folds the log into the segment, so together they must still fit one mapping
+            if (segmentBytes + log.position() + records.size() > maxMappedBytes) {
+                throw new IOException("Catalog store would grow past " + maxMappedBytes
+                    + " bytes, the most a single mapping can hold");
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(records.toByteArray());
+            while (bytes.hasRemaining()) {
+                log.write(bytes);
+            }
+            log.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write catalog log " + logPath, e);
+        }
+    }
+
+    private void compactUnchecked() {
+        try {
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write catalog segment " + segmentPath, e);
+        }
+    }
+
+    // writes the current generation as the next segment epoch, then starts an empty log for it
+    private void compact() throws IOException {
+        List<Product> products = generation.publish(version).products();
+        long written;
+        Path temporary = segmentPath.resolveSibling(SEGMENT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            written = SEGMENT_HEADER;
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeLong(epoch + 1);
+            out.writeInt(products.size());
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            for (final Product product : products) {
+                record.reset();
+                ProductCodec.write(new DataOutputStream(record), product);
+                written += record.size();
+                if (written > maxMappedBytes) {
+                    throw new IOException("Catalog of " + products.size() + " products does not fit a segment of "
+                        + maxMappedBytes + " bytes, the most a single mapping can hold");
+                }
+                record.writeTo(out);
+            }
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, segmentPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        epoch++;
+        segmentBytes = written;
+        resetLog();
+        writeIndex();
+    }
+
+    private void resetLog() throws IOException {
+        if (log == null) {
+            log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+        log.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER).putInt(LOG_MAGIC).putLong(epoch).flip();
+        log.write(header, 0);
+        log.position(LOG_HEADER);
+        log.force(true);
+    }
+}
@@ -0,0 +1,103 @@
+package com.sb.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only mapping of a catalog segment that is unmapped on {@link #close()} rather than whenever
+ * the garbage collector gets to it. Every read of the buffer must happen between a successful
+ * {@link #acquire()} and {@link #release()}; once closed, acquire fails and readers use their own copy.
+ * Where the runtime cannot unmap, closing logs a warning and leaves the mapping to the collector.
+ */
+final class MappedSegment implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(MappedSegment.class);
+    // resolved once; java.lang.foreign would unmap without it, but is still a preview API in Java 21
+    private static final MethodHandle CLEANER = cleaner();
+
+    private final MappedByteBuffer buffer;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private MappedSegment(final MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    static MappedSegment map(final Path path, final long maxBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > maxBytes) {
+                throw new IOException("Catalog segment " + path + " is " + channel.size()
+                    + " bytes, over the " + maxBytes + " bytes a single mapping can hold");
+            }
+            return new MappedSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    ByteBuffer buffer() { return buffer; }
+
+    boolean acquire() {
+        lock.readLock().lock();
+        if (closed) {
+            lock.readLock().unlock();
+            return false;
+        }
+        return true;
+    }
+
+    void release() {
+        lock.readLock().unlock();
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                unmap(buffer);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void unmap(final ByteBuffer buffer) {
+        if (CLEANER == null) {
+            return;
+        }
+        try {
+            CLEANER.invokeExact(buffer);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            logger.warn("Could not unmap a catalog segment, it stays mapped until its buffer is collected", e);
+        }
+    }
+
+    // Unsafe.invokeCleaner bound to the instance, or null once warned that this runtime cannot unmap
+    private static MethodHandle cleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Catalog segments cannot be unmapped on this runtime, each stays mapped until its buffer is collected", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Character n-grams to ordinals. Postings are ascending varint gaps, so ordinals must be added in
+ * increasing order. One writer at a time; readers only see fully appended postings.
+ */
+public class NGramIndex {
+
+    private static final class PostingList {
+        volatile byte[] gaps = new byte[4];
+        // bytes of gaps in use
+        volatile int size;
+        private int last = -1;
+
+        void append(int ordinal) {
+            if (ordinal == last) {
+                return;
+            }
+            int n = size;
+            byte[] current = gaps;
+            if (n + 5 > current.length) {
+                current = Arrays.copyOf(current, Math.max(n + 5, current.length * 2));
+                gaps = current;
+            }
+            int gap = ordinal - last;
+            while ((gap & ~0x7F) != 0) {
+                current[n++] = (byte) (gap & 0x7F | 0x80);
+                gap >>>= 7;
+            }
+            current[n++] = (byte) gap;
+            last = ordinal;
+            size = n;
+        }
+    }
+
+    private final int gramSize;
+    private final Map<String, PostingList> postings = new ConcurrentHashMap<>();
+
+    public NGramIndex(final int gramSize) {
+        if (gramSize <= 0) {
+            throw new IllegalArgumentException("N-gram size must be positive");
+        }
+        this.gramSize = gramSize;
+    }
+
+    public int gramSize() { return gramSize; }
+
+    public int gramCount() { return postings.size(); }
+
+    public void add(final int ordinal, final String normalizedText) {
+        if (normalizedText == null) {
+            return;
+        }
+        for (String gram : grams(normalizedText)) {
+            postings.computeIfAbsent(gram, g -> new PostingList()).append(ordinal);
+        }
+    }
+
+    void write(final DataOutputStream out) throws IOException {
+        out.writeInt(postings.size());
+        for (final Map.Entry<String, PostingList> entry : postings.entrySet()) {
+            PostingList list = entry.getValue();
+            int size = list.size;
+            ProductCodec.writeString(out, entry.getKey());
+            out.writeInt(list.last);
+            out.writeInt(size);
+            out.write(list.gaps, 0, size);
+        }
+    }
+
+    // into an empty index of the same gram size
+    void read(final ByteBuffer in) {
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String gram = IndexCodec.readString(in);
+            PostingList list = new PostingList();
+            list.last = in.getInt();
+            int size = in.getInt();
+            list.gaps = IndexCodec.readBytes(in, size, 4);
+            list.size = size;
+            postings.put(gram, list);
+        }
+    }
+
+    // an edit destroys at most n + 1 query grams, so a match shares grams - maxEdits * (n + 1) of them;
+    // null when the query has no grams to filter by
+    public int[] candidates(final String normalizedQuery, final int maxEdits, final int upTo) {
+        Set<String> queryGrams = grams(normalizedQuery);
+        if (queryGrams.isEmpty()) {
+            return null;
+        }
+        int minShared = Math.max(1, queryGrams.size() - maxEdits * (gramSize + 1));
+
+        Cursors lists = new Cursors(queryGrams.size());
+        for (String gram : queryGrams) {
+            PostingList list = postings.get(gram);
+            if (list != null) {
+                int size = list.size;
+                lists.add(list.gaps, size);
+            }
+        }
+        if (lists.count < minShared) {
+            return new int[0];
+        }
+        return mergeCounting(lists, minShared, upTo);
+    }
+
+    // one decoding position per posting list, with the ordinal it is at
+    private static final class Cursors {
+        final byte[][] gaps;
+        final int[] ends;
+        final int[] positions;
+        final int[] heads;
+        int count;
+
+        Cursors(int capacity) {
+            gaps = new byte[capacity][];
+            ends = new int[capacity];
+            positions = new int[capacity];
+            heads = new int[capacity];
+        }
+
+        void add(byte[] list, int size) {
+            gaps[count] = list;
+            ends[count] = size;
+            heads[count++] = -1;
+        }
+
+        // moves the list to its next ordinal, returning false at its end
+        boolean advance(int list) {
+            int position = positions[list];
+            if (position == ends[list]) {
+                return false;
+            }
+            byte[] bytes = gaps[list];
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            positions[list] = position;
+            heads[list] += gap;
+            return true;
+        }
+    }
+
+    // k-way merge of the ascending posting lists, keeping ordinals that occur in at least minShared lists
+    private static int[] mergeCounting(Cursors lists, int minShared, int upTo) {
+        int[] heads = lists.heads;
+        int[] heap = new int[lists.count];
+        int heapSize = 0;
+        for (int l = 0; l < lists.count; l++) {
+            if (lists.advance(l)) {
+                heap[heapSize] = l;
+                siftUp(heap, heapSize++, heads);
+            }
+        }
+
+        int[] result = new int[16];
+        int resultSize = 0;
+        while (heapSize > 0) {
+            int ordinal = heads[heap[0]];
+            if (ordinal >= upTo) {
+                break;
+            }
+            int shared = 0;
+            while (heapSize > 0 && heads[heap[0]] == ordinal) {
+                int l = heap[0];
+                shared++;
+                if (!lists.advance(l)) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, 0, heads);
+            }
+            if (shared >= minShared) {
+                if (resultSize == result.length) {
+                    result = Arrays.copyOf(result, resultSize * 2);
+                }
+                result[resultSize++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    private static void siftUp(int[] heap, int i, int[] heads) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heads[heap[parent]] <= heads[heap[i]]) {
+                break;
+            }
+            int tmp = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = tmp;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, int i, int[] heads) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            if (left + 1 < size && heads[heap[left + 1]] < heads[heap[left]]) {
+                smallest = left + 1;
+            }
+            if (heads[heap[i]] <= heads[heap[smallest]]) {
+                return;
+            }
+            int tmp = heap[i];
+            heap[i] = heap[smallest];
+            heap[smallest] = tmp;
+            i = smallest;
+        }
+    }
+
+    private Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + gramSize <= text.length(); i++) {
+            grams.add(text.substring(i, i + gramSize));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,289 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+import com.sb.service.Search;
+
+/**
+ * BK-tree over normalized names. Nodes are rows of int arrays and hold no names; callers pass names by
+ * ordinal, readers from their own snapshot. Matches are packed as {@code distance << 32 | ordinal},
+ * sorted ascending. The tree is keyed on the Levenshtein distance ({@link Search#compileLevenshtein}), a
+ * metric at least the alignment distance and at most twice it, so a query of radius r prunes with radius
+ * 2r and never drops a match; matches are then measured with {@link Search#distance}.
+ *
+ * One writer at a time. Readers run concurrently: nodes are linked by release stores after they are
+ * complete, and readers skip nodes and ordinals at or above their bound.
+ */
+public class NameBkTree {
+
+    private static final VarHandle LINKS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // per node: its first ordinal, first child, next sibling and distance to its parent; 0 ends a
+    // child or sibling list since the root is no node's child
+    private record Nodes(int[] ordinals, int[] firstChild, int[] nextSibling, int[] keys) {
+        Nodes(final int capacity) {
+            this(new int[capacity], new int[capacity], new int[capacity], new int[capacity]);
+        }
+
+        Nodes grow() {
+            int capacity = ordinals.length * 2;
+            return new Nodes(Arrays.copyOf(ordinals, capacity), Arrays.copyOf(firstChild, capacity),
+                Arrays.copyOf(nextSibling, capacity), Arrays.copyOf(keys, capacity));
+        }
+    }
+
+    private volatile Nodes nodes = new Nodes(16);
+    private volatile int nodeCount;
+    // per ordinal, the next ordinal with the same name; 0 ends the list, as ordinal 0 follows nothing
+    private volatile int[] nextOrdinal = new int[16];
+    // per node, the last ordinal of its list; only the writer reads it
+    private int[] lastOrdinal = new int[16];
+
+    public int nodeCount() { return nodeCount; }
+
+    public void add(final int ordinal, final IntFunction<? extends CharSequence> names) {
+        if (ordinal >= nextOrdinal.length) {
+            nextOrdinal = Arrays.copyOf(nextOrdinal, Math.max(ordinal + 1, nextOrdinal.length * 2));
+        }
+        if (nodeCount == 0) {
+            link(ordinal, 0, 0, false);
+            return;
+        }
+        Search.Distance name = Search.compileLevenshtein(names.apply(ordinal).toString());
+        Nodes current = nodes;
+        int node = 0;
+        while (true) {
+            int distance = name.to(names.apply(current.ordinals()[node]), Integer.MAX_VALUE);
+            if (distance == 0) {
+                LINKS.setRelease(nextOrdinal, lastOrdinal[node], ordinal);
+                lastOrdinal[node] = ordinal;
+                return;
+            }
+            int child = current.firstChild()[node];
+            while (child != 0 && current.keys()[child] != distance) {
+                child = current.nextSibling()[child];
+            }
+            if (child == 0) {
+                link(ordinal, node, distance, true);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    // the nodes and the ordinal lists of the first size ordinals
+    void write(final DataOutputStream out, final int size) throws IOException {
+        int count = nodeCount;
+        Nodes current = nodes;
+        out.writeInt(count);
+        IndexCodec.writeInts(out, current.ordinals(), count);
+        IndexCodec.writeInts(out, current.firstChild(), count);
+        IndexCodec.writeInts(out, current.nextSibling(), count);
+        IndexCodec.writeInts(out, current.keys(), count);
+        IndexCodec.writeInts(out, lastOrdinal, count);
+        out.writeInt(size);
+        IndexCodec.writeInts(out, nextOrdinal, size);
+    }
+
+    // into an empty tree
+    void read(final ByteBuffer in) {
+        int count = in.getInt();
+        int capacity = Math.max(16, count);
+        Nodes read = new Nodes(IndexCodec.readInts(in, count, capacity), IndexCodec.readInts(in, count, capacity),
+            IndexCodec.readInts(in, count, capacity), IndexCodec.readInts(in, count, capacity));
+        lastOrdinal = IndexCodec.readInts(in, count, capacity);
+        int size = in.getInt();
+        nextOrdinal = IndexCodec.readInts(in, size, 16);
+        nodes = read;
+        nodeCount = count;
+    }
+
+    private void link(final int ordinal, final int parent, final int distance, final boolean child) {
+        int added = nodeCount;
+        Nodes current = nodes;
+        if (added == current.ordinals().length) {
+            current = current.grow();
+            lastOrdinal = Arrays.copyOf(lastOrdinal, current.ordinals().length);
+            nodes = current;
+        }
+        current.ordinals()[added] = ordinal;
+        current.keys()[added] = distance;
+        lastOrdinal[added] = ordinal;
+        if (child) {
+            current.nextSibling()[added] = current.firstChild()[parent];
+            LINKS.setRelease(current.firstChild(), parent, added);
+        }
+        nodeCount = added + 1;
+    }
+
+    public long[] findWithin(final String normalizedQuery, final int maxDistance, final int upTo,
+        final IntFunction<? extends CharSequence> names) {
+        return findWithin(normalizedQuery, maxDistance, upTo, names, new int[1]);
+    }
+
+    long[] findWithin(final String normalizedQuery, final int maxDistance, final int upTo,
+        final IntFunction<? extends CharSequence> names, final int[] visited) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Max distance cannot be negative");
+        }
+        Reader reader = new Reader(names, upTo);
+        long[][] found = { new long[16] };
+        int[] count = new int[1];
+        if (reader.hasRoot()) {
+            reader.collectWithin(0, Search.compileLevenshtein(normalizedQuery), Search.compile(normalizedQuery), maxDistance, found, count,
+                visited);
+        }
+        long[] sorted = Arrays.copyOf(found[0], count[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public long[] findNearest(final String normalizedQuery, final int k, final int upTo,
+        final IntFunction<? extends CharSequence> names) {
+        return findNearest(normalizedQuery, k, upTo, ordinal -> true, names, new int[1]);
+    }
+
+    public long[] findNearest(final String normalizedQuery, final int k, final int upTo, final IntPredicate filter,
+        final IntFunction<? extends CharSequence> names) {
+        return findNearest(normalizedQuery, k, upTo, filter, names, new int[1]);
+    }
+
+    long[] findNearest(final String normalizedQuery, final int k, final int upTo,
+        final IntFunction<? extends CharSequence> names, final int[] visited) {
+        return findNearest(normalizedQuery, k, upTo, ordinal -> true, names, visited);
+    }
+
+    private long[] findNearest(final String normalizedQuery, final int k, final int upTo, final IntPredicate filter,
+        final IntFunction<? extends CharSequence> names, final int[] visited) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Number of matches must be positive");
+        }
+        Reader reader = new Reader(names, upTo);
+        PriorityQueue<Long> best = new PriorityQueue<>(k + 1, Comparator.reverseOrder());
+        if (reader.hasRoot()) {
+            reader.collectNearest(0, Search.compileLevenshtein(normalizedQuery), Search.compile(normalizedQuery), k, filter, best, visited);
+        }
+        long[] sorted = best.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    static long pack(int distance, int ordinal) {
+        return ((long) distance << 32) | ordinal;
+    }
+
+    // one query's view of the tree, read once so that it only sees arrays at least as new as its bound
+    private final class Reader {
+        final Nodes nodes = NameBkTree.this.nodes;
+        final int[] nextOrdinal = NameBkTree.this.nextOrdinal;
+        final IntFunction<? extends CharSequence> names;
+        final int upTo;
+
+        Reader(final IntFunction<? extends CharSequence> names, final int upTo) {
+            this.names = names;
+            this.upTo = upTo;
+        }
+
+        boolean hasRoot() {
+            return upTo > 0 && nodeCount > 0 && nodes.ordinals()[0] < upTo;
+        }
+
+        int firstOrdinal(final int node) { return nodes.ordinals()[node]; }
+
+        // the next ordinal with the same name below the bound, or -1
+        int nextOrdinal(final int ordinal) {
+            int next = (int) LINKS.getAcquire(nextOrdinal, ordinal);
+            return next != 0 && next < upTo ? next : -1;
+        }
+
+        // the first child below the bound starting at the given sibling, or 0
+        int visible(int child) {
+            while (child != 0 && nodes.ordinals()[child] >= upTo) {
+                child = nodes.nextSibling()[child];
+            }
+            return child;
+        }
+
+        int firstChild(final int node) { return visible((int) LINKS.getAcquire(nodes.firstChild(), node)); }
+
+        int nextSibling(final int child) { return visible(nodes.nextSibling()[child]); }
+
+        void collectWithin(int node, Search.Distance query, Search.Distance alignment, int maxDistance, long[][] found,
+            int[] count, int[] visited) {
+            visited[0]++;
+            CharSequence name = names.apply(firstOrdinal(node));
+            int metric = query.to(name, Integer.MAX_VALUE);
+            int distance = metric <= 2 * maxDistance ? alignment.to(name, maxDistance) : maxDistance + 1;
+            if (distance <= maxDistance) {
+                for (int ordinal = firstOrdinal(node); ordinal >= 0; ordinal = nextOrdinal(ordinal)) {
+                    if (count[0] == found[0].length) {
+                        found[0] = Arrays.copyOf(found[0], count[0] * 2);
+                    }
+                    found[0][count[0]++] = pack(distance, ordinal);
+                }
+            }
+            for (int child = firstChild(node); child != 0; child = nextSibling(child)) {
+                if (Math.abs(nodes.keys()[child] - metric) <= 2 * maxDistance) {
+                    collectWithin(child, query, alignment, maxDistance, found, count, visited);
+                }
+            }
+        }
+
+        void collectNearest(int node, Search.Distance query, Search.Distance alignment, int k, IntPredicate filter,
+            PriorityQueue<Long> best, int[] visited) {
+            visited[0]++;
+            CharSequence name = names.apply(firstOrdinal(node));
+            int metric = query.to(name, Integer.MAX_VALUE);
+            int distance = -1;
+            for (int ordinal = firstOrdinal(node); ordinal >= 0; ordinal = nextOrdinal(ordinal)) {
+                if (!filter.test(ordinal)) {
+                    continue;
+                }
+                int radius = radius(best, k);
+                if (metric > 2L * radius) {
+                    break;
+                }
+                if (distance < 0) {
+                    distance = alignment.to(name, radius);
+                }
+                long match = pack(distance, ordinal);
+                if (best.size() < k) {
+                    best.add(match);
+                } else if (match < best.peek()) {
+                    best.poll();
+                    best.add(match);
+                }
+            }
+            // visit the most promising subtrees first so the radius shrinks early
+            long[] children = new long[8];
+            int childCount = 0;
+            for (int child = firstChild(node); child != 0; child = nextSibling(child)) {
+                if (childCount == children.length) {
+                    children = Arrays.copyOf(children, childCount * 2);
+                }
+                children[childCount++] = pack(Math.abs(nodes.keys()[child] - metric), child);
+            }
+            Arrays.sort(children, 0, childCount);
+            for (int i = 0; i < childCount; i++) {
+                if (children[i] >>> 32 > 2L * radius(best, k)) {
+                    return;
+                }
+                collectNearest((int) children[i], query, alignment, k, filter, best, visited);
+            }
+        }
+
+        // the distance a match must not exceed to make the k best
+        private static int radius(PriorityQueue<Long> best, int k) {
+            return best.size() < k ? Integer.MAX_VALUE - 1 : (int) (best.peek() >>> 32);
+        }
+    }
+}
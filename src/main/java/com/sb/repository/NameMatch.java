@@ -0,0 +1,8 @@
+package com.sb.repository;
+
+import com.sb.domain.Product;
+
+/**
+ * A product whose normalized name is {@code distance} edits away from a query.
+ */
+public record NameMatch(Product product, int distance) {}
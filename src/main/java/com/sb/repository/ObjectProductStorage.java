@@ -0,0 +1,69 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sb.domain.Product;
+import com.sb.service.SearchKeys;
+
+/**
+ * Keeps the saved {@link Product} objects themselves, plus their search keys.
+ */
+final class ObjectProductStorage implements ProductStorage {
+    private Product[] products = new Product[16];
+    private String[] searchNames = new String[16];
+    private final Map<String, Integer> ordinalById = new ConcurrentHashMap<>();
+
+    @Override
+    public void append(final int ordinal, final Product product, final String searchName) {
+        if (ordinal == products.length) {
+            products = Arrays.copyOf(products, ordinal * 2);
+            searchNames = Arrays.copyOf(searchNames, ordinal * 2);
+        }
+        products[ordinal] = product;
+        searchNames[ordinal] = searchName;
+        ordinalById.put(product.getId(), ordinal);
+    }
+
+    @Override
+    public CharSequence searchName(final int ordinal) { return searchNames[ordinal]; }
+
+    // the products are the segment's and their search keys are cheap to fold again
+    @Override
+    public void write(final DataOutputStream out, final int size) {}
+
+    @Override
+    public void read(final ByteBuffer in, final int size, final Product[] segmentProducts) {
+        Product[] read = Arrays.copyOf(segmentProducts, Math.max(16, size));
+        String[] readNames = new String[read.length];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            readNames[ordinal] = SearchKeys.of(read[ordinal].getName());
+            ordinalById.put(read[ordinal].getId(), ordinal);
+        }
+        products = read;
+        searchNames = readNames;
+    }
+
+    @Override
+    public ProductTable publish(final int size) {
+        Product[] publishedProducts = products;
+        String[] publishedNames = searchNames;
+        return new ProductTable() {
+            @Override
+            public Product product(final int ordinal) { return publishedProducts[ordinal]; }
+
+            @Override
+            public CharSequence searchName(final int ordinal) { return publishedNames[ordinal]; }
+
+            @Override
+            public int ordinalOf(final String id) {
+                Integer ordinal = ordinalById.get(id);
+                return ordinal != null ? ordinal : -1;
+            }
+        };
+    }
+}
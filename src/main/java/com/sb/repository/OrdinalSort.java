@@ -0,0 +1,65 @@
+package com.sb.repository;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Sorts and merges ordinal arrays by a caller's total order without boxing them.
+ */
+final class OrdinalSort {
+
+    private static final int RUN = 16;
+
+    private OrdinalSort() {}
+
+    // sorts runs by insertion, then merges them bottom-up; may reorder and return the given array
+    static int[] sort(final int[] ordinals, final IntBinaryOperator order) {
+        int n = ordinals.length;
+        for (int start = 0; start < n; start += RUN) {
+            insertionSort(ordinals, start, Math.min(start + RUN, n), order);
+        }
+        int[] from = ordinals;
+        int[] to = new int[n];
+        for (int width = RUN; width < n; width *= 2) {
+            for (int start = 0; start < n; start += 2 * width) {
+                int middle = Math.min(start + width, n);
+                merge(from, start, middle, from, middle, Math.min(start + 2 * width, n), to, start, order);
+            }
+            int[] swapped = from;
+            from = to;
+            to = swapped;
+        }
+        return from;
+    }
+
+    static int[] merge(final int[] left, final int[] right, final IntBinaryOperator order) {
+        if (right.length == 0) {
+            return left;
+        }
+        int[] merged = new int[left.length + right.length];
+        merge(left, 0, left.length, right, 0, right.length, merged, 0, order);
+        return merged;
+    }
+
+    private static void merge(final int[] left, int i, final int leftEnd, final int[] right, int j, final int rightEnd,
+        final int[] into, int at, final IntBinaryOperator order) {
+        while (i < leftEnd || j < rightEnd) {
+            if (j == rightEnd || i < leftEnd && order.applyAsInt(left[i], right[j]) <= 0) {
+                into[at++] = left[i++];
+            } else {
+                into[at++] = right[j++];
+            }
+        }
+    }
+
+    private static void insertionSort(final int[] ordinals, final int from, final int to, final IntBinaryOperator order) {
+        for (int i = from + 1; i < to; i++) {
+            int ordinal = ordinals[i];
+            int j = i - 1;
+            while (j >= from && order.applyAsInt(ordinals[j], ordinal) > 0) {
+                ordinals[j + 1] = ordinals[j];
+                j--;
+            }
+            ordinals[j + 1] = ordinal;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Ordinals sorted by price. Ordinals added since the last {@link #fold()} form an unsorted tail that
+ * range queries scan; publishing folds it once it exceeds {@link #MAX_TAIL}, so a query reads at most
+ * that many prices outside its range. One writer at a time; arrays are replaced, never reordered, and
+ * readers ignore ordinals at or above their bound.
+ */
+public class PriceIndex {
+
+    static final int MAX_TAIL = 64;
+
+    // ordinals below covered, by price then ordinal
+    private record Sorted(int[] ordinals, int covered) {}
+
+    private volatile double[] prices = new double[64];
+    private volatile Sorted sorted = new Sorted(new int[0], 0);
+    private int size;
+
+    public double price(final int ordinal) { return prices[ordinal]; }
+
+    public void add(final int ordinal, final double price) {
+        double[] current = prices;
+        if (ordinal == current.length) {
+            current = Arrays.copyOf(current, ordinal * 2);
+        }
+        current[ordinal] = price;
+        prices = current;
+        size = ordinal + 1;
+    }
+
+    public void fold() {
+        Sorted base = sorted;
+        if (size - base.covered() > MAX_TAIL) {
+            double[] current = prices;
+            IntBinaryOperator order = order(current);
+            int[] tail = OrdinalSort.sort(IntStream.range(base.covered(), size).toArray(), order);
+            sorted = new Sorted(OrdinalSort.merge(base.ordinals(), tail, order), size);
+        }
+    }
+
+    void write(final DataOutputStream out) throws IOException {
+        Sorted base = sorted;
+        out.writeInt(size);
+        IndexCodec.writeDoubles(out, prices, size);
+        out.writeInt(base.covered());
+        out.writeInt(base.ordinals().length);
+        IndexCodec.writeInts(out, base.ordinals(), base.ordinals().length);
+    }
+
+    // into an empty index
+    void read(final ByteBuffer in) {
+        int count = in.getInt();
+        double[] read = IndexCodec.readDoubles(in, count, 64);
+        int covered = in.getInt();
+        int sortedCount = in.getInt();
+        sorted = new Sorted(IndexCodec.readInts(in, sortedCount, 0), covered);
+        prices = read;
+        size = count;
+    }
+
+    public int[] range(final double min, final double max, final int upTo, final IntPredicate filter) {
+        Sorted base = sorted;
+        double[] current = prices;
+        int[] ordinals = base.ordinals();
+        int low = 0;
+        int high = ordinals.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (current[ordinals[middle]] < min) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int[] inBase = new int[16];
+        int count = 0;
+        for (int i = low; i < ordinals.length && current[ordinals[i]] <= max; i++) {
+            int ordinal = ordinals[i];
+            if (ordinal < upTo && filter.test(ordinal)) {
+                if (count == inBase.length) {
+                    inBase = Arrays.copyOf(inBase, count * 2);
+                }
+                inBase[count++] = ordinal;
+            }
+        }
+        int[] tail = IntStream.range(base.covered(), Math.max(base.covered(), upTo))
+            .filter(ordinal -> current[ordinal] >= min && current[ordinal] <= max && filter.test(ordinal))
+            .toArray();
+        IntBinaryOperator order = order(current);
+        return OrdinalSort.merge(Arrays.copyOf(inBase, count), OrdinalSort.sort(tail, order), order);
+    }
+
+    private static IntBinaryOperator order(final double[] prices) {
+        return (a, b) -> {
+            int byPrice = Double.compare(prices[a], prices[b]);
+            return byPrice != 0 ? byPrice : Integer.compare(a, b);
+        };
+    }
+}
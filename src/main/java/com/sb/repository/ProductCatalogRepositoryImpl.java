@@ -1,39 +1,96 @@
 package com.sb.repository;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import com.sb.domain.Product;
 
 @Repository
+@ConditionalOnProperty(name = "catalog.store.type", havingValue = "memory", matchIfMissing = true)
 public class ProductCatalogRepositoryImpl implements ProductCatalogRepositoryInterface {
-    private final Map<String, Product> products = new ConcurrentHashMap<>();
+    private final CatalogIndexSettings settings;
 
-    public List<Product> findAll() { return new ArrayList<>(products.values()); }
+    // written only under the repository lock; readers only ever see published snapshots
+    private CatalogGeneration generation;
+    private long version;
+    private volatile CatalogSnapshot snapshot;
+    private final InFlightBuilds builds = new InFlightBuilds();
 
-    public Optional<Product> findById(final String id) { return Optional.ofNullable(products.get(id)); }
+    public ProductCatalogRepositoryImpl() {
+        this(CatalogIndexSettings.DEFAULTS);
+    }
+
+    @Autowired
+    public ProductCatalogRepositoryImpl(@Value("${catalog.search.ngram.size:3}") final int gramSize,
+        @Value("${catalog.search.ngram.fields:name}") final String[] gramFields,
+        @Value("${catalog.search.ngram.max-edits:2}") final int maxEdits,
+        @Value("${catalog.search.ngram.min-catalog-size:10000}") final int minIndexedSize,
+        @Value("${catalog.store.layout:objects}") final String layout) {
+        this(CatalogIndexSettings.of(gramSize, gramFields, maxEdits, minIndexedSize, layout));
+    }
+
+    public ProductCatalogRepositoryImpl(final CatalogIndexSettings settings) {
+        this.settings = settings;
+        this.generation = new CatalogGeneration(settings);
+        this.snapshot = generation.publish(version);
+    }
+
+    public CatalogSnapshot snapshot() { return snapshot; }
+
+    public List<Product> findAll() { return snapshot.products(); }
+
+    public Optional<Product> findById(final String id) { return snapshot.findById(id); }
 
-    public Product save(final Product product) {
+    public List<Product> findAfter(final String afterId, final int limit) {
+        CatalogSnapshot current = snapshot;
+        if (afterId == null || afterId.isEmpty()) {
+            return current.products().subList(0, Math.min(limit, current.size()));
+        }
+        return current.productsAfter(afterId, limit);
+    }
+
+    public synchronized Product save(final Product product) {
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null");
         }
         product.setId(UUID.randomUUID().toString());
-        products.put(product.getId(), product);
+        generation.append(product);
+        builds.record(List.of(product));
+        snapshot = generation.publish(++version);
         return product;
     }
 
-    public void clear() { products.clear(); }
+    public synchronized void clear() {
+        generation = new CatalogGeneration(settings);
+        builds.clear();
+        snapshot = generation.publish(++version);
+    }
+
+    public synchronized CatalogBuild startBuild() {
+        return builds.track(new CatalogBuild(new CatalogGeneration(settings)));
+    }
+
+    /**
+     * Replaces the catalog with a finished build in one step. Readers holding the previous snapshot
+     * keep it; products saved since the build started are carried over onto the build.
+     */
+    public synchronized void swapIn(final CatalogBuild build) {
+        generation = builds.swapIn(build);
+        snapshot = generation.publish(++version);
+    }
 
-    public void saveAll(final List<Product> productList) {
+    public synchronized void saveAll(final List<Product> productList) {
         for (final Product product : productList) {
             product.setId(UUID.randomUUID().toString());
-            products.put(product.getId(), product);
+            generation.append(product);
         }
+        builds.record(productList);
+        snapshot = generation.publish(++version);
     }
 }
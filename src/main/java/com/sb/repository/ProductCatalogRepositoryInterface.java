@@ -6,9 +6,13 @@ import java.util.Optional;
 import com.sb.domain.Product;
 
 public interface ProductCatalogRepositoryInterface {
+    CatalogSnapshot snapshot();
     List<Product> findAll();
     Optional<Product> findById(String id);
+    List<Product> findAfter(String afterId, int limit);
     Product save(Product product);
     void clear();
     void saveAll(List<Product> products);
+    CatalogBuild startBuild();
+    void swapIn(CatalogBuild build);
 }
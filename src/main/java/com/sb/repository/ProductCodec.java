@@ -0,0 +1,168 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.sb.domain.Product;
+
+/**
+ * Binary product records for the mapped catalog store: id, name, category, price, description and
+ * image url, strings as a byte length (-1 for null) followed by UTF-8. Records are read with absolute
+ * gets so any number of threads can decode from one shared buffer.
+ */
+final class ProductCodec {
+
+    private ProductCodec() {}
+
+    static void write(final DataOutputStream out, final Product product) throws IOException {
+        writeString(out, product.getId());
+        writeString(out, product.getName());
+        writeString(out, product.getCategory());
+        out.writeDouble(product.getPrice());
+        writeString(out, product.getDescription());
+        writeString(out, product.getImageUrl());
+    }
+
+    /** Decodes the record at {@code offset} as a plain heap copy. */
+    static Product read(final ByteBuffer buffer, final int offset) {
+        return read(buffer, offset, null);
+    }
+
+    /**
+     * Decodes the record at {@code offset} of the segment, leaving the description and image url in
+     * the mapping to be decoded on access.
+     */
+    static Product readLazily(final MappedSegment segment, final int offset) {
+        return read(segment.buffer(), offset, segment);
+    }
+
+    private static Product read(final ByteBuffer buffer, final int offset, final MappedSegment lazy) {
+        int at = offset;
+        String id = readString(buffer, at);
+        at = skipString(buffer, at);
+        String name = readString(buffer, at);
+        at = skipString(buffer, at);
+        String category = readString(buffer, at);
+        at = skipString(buffer, at);
+        double price = buffer.getDouble(at);
+        at += Double.BYTES;
+        int descriptionOffset = at;
+        int imageUrlOffset = skipString(buffer, at);
+
+        Product product;
+        if (lazy != null) {
+            product = new MappedProduct(lazy, descriptionOffset, imageUrlOffset);
+        } else {
+            product = new Product();
+            product.setDescription(readString(buffer, descriptionOffset));
+            product.setImageUrl(readString(buffer, imageUrlOffset));
+        }
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setPrice(price);
+        return product;
+    }
+
+    /** Offset just past the record at {@code offset}. */
+    static int skip(final ByteBuffer buffer, final int offset) {
+        int at = offset;
+        for (int field = 0; field < 3; field++) {
+            at = skipString(buffer, at);
+        }
+        at += Double.BYTES;
+        return skipString(buffer, skipString(buffer, at));
+    }
+
+    static String readString(final ByteBuffer buffer, final int offset) {
+        int length = buffer.getInt(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int skipString(final ByteBuffer buffer, final int offset) {
+        return offset + Integer.BYTES + Math.max(0, buffer.getInt(offset));
+    }
+
+    static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * A product whose description and image url stay in the mapped segment until either is first read
+     * or set, when both are decoded to the heap once. {@link #detach()} does the same before the
+     * segment is unmapped; a product first read after that has neither.
+     */
+    static final class MappedProduct extends Product {
+        private final MappedSegment segment;
+        private final int descriptionOffset;
+        private final int imageUrlOffset;
+        private volatile boolean loaded;
+
+        MappedProduct(final MappedSegment segment, final int descriptionOffset, final int imageUrlOffset) {
+            this.segment = segment;
+            this.descriptionOffset = descriptionOffset;
+            this.imageUrlOffset = imageUrlOffset;
+        }
+
+        void detach() {
+            load();
+        }
+
+        @Override
+        public String getDescription() {
+            load();
+            return super.getDescription();
+        }
+
+        @Override
+        public void setDescription(final String description) {
+            load();
+            super.setDescription(description);
+        }
+
+        @Override
+        public String getImageUrl() {
+            load();
+            return super.getImageUrl();
+        }
+
+        @Override
+        public void setImageUrl(final String imageUrl) {
+            load();
+            super.setImageUrl(imageUrl);
+        }
+
+        private void load() {
+            if (loaded) {
+                return;
+            }
+            synchronized (this) {
+                if (loaded) {
+                    return;
+                }
+                if (segment.acquire()) {
+                    try {
+                        super.setDescription(readString(segment.buffer(), descriptionOffset));
+                        super.setImageUrl(readString(segment.buffer(), imageUrlOffset));
+                    } finally {
+                        segment.release();
+                    }
+                }
+                loaded = true;
+            }
+        }
+    }
+}
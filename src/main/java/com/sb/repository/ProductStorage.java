@@ -0,0 +1,31 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.sb.domain.Product;
+
+/**
+ * Write side of a catalog generation's product storage. Appends come from one thread at a time and
+ * never change what earlier publishes returned for the ordinals they covered.
+ */
+interface ProductStorage {
+
+    void append(int ordinal, Product product, String searchName);
+
+    /** The writer's own view of an appended search name; readers go through {@link #publish}. */
+    CharSequence searchName(int ordinal);
+
+    ProductTable publish(int size);
+
+    /** Writes what {@link #read} needs besides the segment's products to restore the first size ordinals. */
+    void write(DataOutputStream out, int size) throws IOException;
+
+    /** Restores an empty storage to what was written, given the segment's products in ordinal order. */
+    void read(ByteBuffer in, int size, Product[] products);
+
+    static ProductStorage create(final CatalogIndexSettings settings) {
+        return settings.columnar() ? new ColumnarProductStorage() : new ObjectProductStorage();
+    }
+}
@@ -0,0 +1,18 @@
+package com.sb.repository;
+
+import com.sb.domain.Product;
+
+/**
+ * Read side of a catalog generation's product storage as of one publish. Only ordinals below the
+ * size it was published at may be read.
+ */
+interface ProductTable {
+
+    Product product(int ordinal);
+
+    /** Name folded by {@link com.sb.service.SearchKeys}, computed once when the product was saved. */
+    CharSequence searchName(int ordinal);
+
+    /** Ordinal of the product with the given id, or -1; may be at or past the published size. */
+    int ordinalOf(String id);
+}
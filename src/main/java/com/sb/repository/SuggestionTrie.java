@@ -0,0 +1,195 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Trie over name tokens where every node caches its most popular completions, by product count and then
+ * alphabetically. One writer at a time; readers run concurrently since published arrays are replaced,
+ * never modified, and may see products newer than their snapshot.
+ */
+public class SuggestionTrie {
+
+    public static final int MAX_COMPLETIONS = 10;
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_COMPLETIONS = new int[0];
+
+    private static final class Node {
+        final char key;
+        // sorted by key
+        volatile Node[] children = NO_CHILDREN;
+        volatile int[] completions = NO_COMPLETIONS;
+
+        Node(char key) {
+            this.key = key;
+        }
+    }
+
+    private final TokenDictionary tokens;
+    private final Node root = new Node('\0');
+    private int[] counts = new int[64];
+
+    public SuggestionTrie(final TokenDictionary tokens) {
+        this.tokens = tokens;
+    }
+
+    public void add(final int[] tokenIds) {
+        for (int i = 0; i < tokenIds.length; i++) {
+            int id = tokenIds[i];
+            if (indexOf(tokenIds, id, i) < 0) {
+                add(id);
+            }
+        }
+    }
+
+    // the counts are all the trie needs: nodes are rebuilt from them on read
+    void write(final DataOutputStream out) throws IOException {
+        int count = tokens.size();
+        out.writeInt(count);
+        IndexCodec.writeInts(out, counts, count);
+    }
+
+    // into an empty trie over the dictionary the counts were written with
+    void read(final ByteBuffer in) {
+        int count = in.getInt();
+        counts = IndexCodec.readInts(in, count, 64);
+        // best first, so every node's completions are its first MAX_COMPLETIONS tokens
+        int[] ranked = OrdinalSort.sort(IntStream.range(0, count).toArray(), (a, b) -> better(a, b) ? -1 : better(b, a) ? 1 : 0);
+        for (final int id : ranked) {
+            if (counts[id] == 0) {
+                continue;
+            }
+            String token = tokens.token(id);
+            Node node = root;
+            for (int i = 0; i < token.length(); i++) {
+                node = childOrCreate(node, token.charAt(i));
+                int[] completions = node.completions;
+                if (completions.length < MAX_COMPLETIONS) {
+                    int[] next = Arrays.copyOf(completions, completions.length + 1);
+                    next[completions.length] = id;
+                    node.completions = next;
+                }
+            }
+        }
+    }
+
+    public List<String> complete(final String prefix, final int limit) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        int[] completions = node.completions;
+        List<String> result = new ArrayList<>(Math.min(limit, completions.length));
+        for (int i = 0; i < completions.length && i < limit; i++) {
+            result.add(tokens.token(completions[i]));
+        }
+        return result;
+    }
+
+    private void add(final int id) {
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+        }
+        counts[id]++;
+        String token = tokens.token(id);
+        Node node = root;
+        for (int i = 0; i < token.length(); i++) {
+            node = childOrCreate(node, token.charAt(i));
+            promote(node, id);
+        }
+    }
+
+    // id's count just grew, every other count is unchanged
+    private void promote(final Node node, final int id) {
+        int[] completions = node.completions;
+        int at = indexOf(completions, id, completions.length);
+        int[] next;
+        if (at >= 0) {
+            if (at == 0 || !better(id, completions[at - 1])) {
+                return;
+            }
+            next = completions.clone();
+        } else if (completions.length < MAX_COMPLETIONS) {
+            next = Arrays.copyOf(completions, completions.length + 1);
+            at = completions.length;
+            next[at] = id;
+        } else if (better(id, completions[completions.length - 1])) {
+            next = completions.clone();
+            at = completions.length - 1;
+            next[at] = id;
+        } else {
+            return;
+        }
+        while (at > 0 && better(next[at], next[at - 1])) {
+            int swapped = next[at - 1];
+            next[at - 1] = next[at];
+            next[at] = swapped;
+            at--;
+        }
+        node.completions = next;
+    }
+
+    private boolean better(final int a, final int b) {
+        if (counts[a] != counts[b]) {
+            return counts[a] > counts[b];
+        }
+        return tokens.token(a).compareTo(tokens.token(b)) < 0;
+    }
+
+    private static Node child(final Node node, final char key) {
+        Node[] children = node.children;
+        int at = search(children, key);
+        return at >= 0 ? children[at] : null;
+    }
+
+    private static Node childOrCreate(final Node node, final char key) {
+        Node[] children = node.children;
+        int at = search(children, key);
+        if (at >= 0) {
+            return children[at];
+        }
+        int insertAt = -at - 1;
+        Node created = new Node(key);
+        Node[] grown = new Node[children.length + 1];
+        System.arraycopy(children, 0, grown, 0, insertAt);
+        grown[insertAt] = created;
+        System.arraycopy(children, insertAt, grown, insertAt + 1, children.length - insertAt);
+        node.children = grown;
+        return created;
+    }
+
+    private static int search(final Node[] children, final char key) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char found = children[middle].key;
+            if (found < key) {
+                low = middle + 1;
+            } else if (found > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int indexOf(final int[] ids, final int id, final int before) {
+        for (int i = 0; i < before; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,163 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import com.sb.service.LevenshteinAutomaton;
+
+/**
+ * Ordinals sorted by normalized term; callers pass terms by ordinal, readers from their own snapshot.
+ * As in {@link PriceIndex}, ordinals since the last rebuild form an unsorted tail. One writer at a time.
+ */
+public class TermDictionary {
+
+    private static final int MIN_TAIL = 1024;
+
+    public interface MatchConsumer {
+        void accept(int ordinal, int distance);
+    }
+
+    private volatile Terms terms = new Terms(new int[0], 0);
+
+    // ordinals must be added in increasing order, starting from 0
+    public void add(final int ordinal, final IntFunction<? extends CharSequence> names) {
+        Terms base = terms;
+        if (ordinal + 1 - base.covered() >= Math.max(MIN_TAIL, base.covered() / 8)) {
+            IntBinaryOperator order = order(names);
+            int[] tail = OrdinalSort.sort(IntStream.rangeClosed(base.covered(), ordinal).toArray(), order);
+            terms = new Terms(OrdinalSort.merge(base.sorted(), tail, order), ordinal + 1);
+        }
+    }
+
+    public Terms terms() { return terms; }
+
+    void write(final DataOutputStream out) throws IOException {
+        Terms current = terms;
+        out.writeInt(current.covered());
+        out.writeInt(current.sorted().length);
+        IndexCodec.writeInts(out, current.sorted(), current.sorted().length);
+    }
+
+    // into an empty dictionary
+    void read(final ByteBuffer in) {
+        int covered = in.getInt();
+        int count = in.getInt();
+        terms = new Terms(IndexCodec.readInts(in, count, 0), covered);
+    }
+
+    // ordinals below covered, by term and then ordinal
+    public record Terms(int[] sorted, int covered) {
+
+        // automaton states are kept per prefix length, so each term only feeds the chars past its common
+        // prefix with the previous one, and a dead prefix is skipped with one binary search
+        public void intersect(final LevenshteinAutomaton automaton, final int upTo,
+            final IntFunction<? extends CharSequence> names, final MatchConsumer consumer) {
+            if (upTo < covered) {
+                throw new IllegalArgumentException("Terms cover " + covered + " ordinals, past the bound " + upTo);
+            }
+            IntBinaryOperator order = order(names);
+            int[] tailHits = tailHits(automaton, upTo, names);
+            int nextTailHit = 0;
+            int[] states = new int[16];
+            states[0] = automaton.start();
+            CharSequence previous = "";
+            int validDepth = 0;
+
+            int i = 0;
+            while (i < covered) {
+                int ordinal = sorted[i];
+                CharSequence term = names.apply(ordinal);
+                int depth = Math.min(validDepth, commonPrefix(previous, term));
+                int state = states[depth];
+                if (states.length <= term.length()) {
+                    states = Arrays.copyOf(states, Math.max(states.length * 2, term.length() + 1));
+                }
+
+                boolean dead = false;
+                for (int c = depth; c < term.length(); c++) {
+                    state = automaton.step(state, term.charAt(c));
+                    states[c + 1] = state;
+                    if (state == LevenshteinAutomaton.DEAD) {
+                        // nothing starting with term[0..c] can be accepted: seek past that prefix
+                        i = seekPast(term, c + 1, i + 1, names);
+                        validDepth = c + 1;
+                        dead = true;
+                        break;
+                    }
+                }
+                if (!dead) {
+                    validDepth = term.length();
+                    if (automaton.accepts(state)) {
+                        while (nextTailHit < tailHits.length && order.applyAsInt(tailHits[nextTailHit], ordinal) < 0) {
+                            report(automaton, tailHits[nextTailHit++], names, consumer);
+                        }
+                        consumer.accept(ordinal, automaton.distance(state));
+                    }
+                    i++;
+                }
+                previous = term;
+            }
+            while (nextTailHit < tailHits.length) {
+                report(automaton, tailHits[nextTailHit++], names, consumer);
+            }
+        }
+
+        // tail ordinals whose terms the automaton accepts, by term and then ordinal
+        private int[] tailHits(final LevenshteinAutomaton automaton, final int upTo,
+            final IntFunction<? extends CharSequence> names) {
+            return OrdinalSort.sort(IntStream.range(covered, upTo)
+                .filter(ordinal -> automaton.accepts(run(automaton, names.apply(ordinal))))
+                .toArray(), order(names));
+        }
+
+        private static void report(final LevenshteinAutomaton automaton, final int ordinal,
+            final IntFunction<? extends CharSequence> names, final MatchConsumer consumer) {
+            consumer.accept(ordinal, automaton.distance(run(automaton, names.apply(ordinal))));
+        }
+
+        private static int run(final LevenshteinAutomaton automaton, final CharSequence term) {
+            int state = automaton.start();
+            for (int c = 0; c < term.length() && state != LevenshteinAutomaton.DEAD; c++) {
+                state = automaton.step(state, term.charAt(c));
+            }
+            return state;
+        }
+
+        // the first index from `from` whose term does not start with term[0..length)
+        private int seekPast(final CharSequence term, final int length, final int from,
+            final IntFunction<? extends CharSequence> names) {
+            int low = from;
+            int high = covered;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (commonPrefix(term, names.apply(sorted[middle])) >= length) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static IntBinaryOperator order(final IntFunction<? extends CharSequence> names) {
+        return (a, b) -> {
+            int byTerm = CharSequence.compare(names.apply(a), names.apply(b));
+            return byTerm != 0 ? byTerm : Integer.compare(a, b);
+        };
+    }
+
+    private static int commonPrefix(CharSequence a, CharSequence b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,60 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns name tokens to dense int ids so each product stores its tokens as an {@code int[]} and a
+ * query only compares itself against every distinct token once.
+ *
+ * Writers must be serialized by the caller; ids below {@link #size()} are safe to read concurrently.
+ */
+public class TokenDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] tokens = new String[64];
+    private volatile int size;
+
+    public int size() { return size; }
+
+    public String token(final int id) { return tokens[id]; }
+
+    public int intern(final String token) {
+        Integer id = ids.get(token);
+        if (id != null) {
+            return id;
+        }
+        int next = size;
+        if (next == tokens.length) {
+            tokens = Arrays.copyOf(tokens, next * 2);
+        }
+        tokens[next] = token;
+        size = next + 1;
+        ids.put(token, next);
+        return next;
+    }
+
+    void write(final DataOutputStream out) throws IOException {
+        int count = size;
+        out.writeInt(count);
+        for (int id = 0; id < count; id++) {
+            ProductCodec.writeString(out, tokens[id]);
+        }
+    }
+
+    // into an empty dictionary
+    void read(final ByteBuffer in) {
+        int count = in.getInt();
+        String[] read = new String[Math.max(64, count)];
+        for (int id = 0; id < count; id++) {
+            read[id] = IndexCodec.readString(in);
+            ids.put(read[id], id);
+        }
+        tokens = read;
+        size = count;
+    }
+}
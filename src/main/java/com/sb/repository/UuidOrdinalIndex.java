@@ -0,0 +1,96 @@
+package com.sb.repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * Open-addressing table of ordinals keyed by the caller's UUID columns. One writer at a time; slots are
+ * release-stored after the ordinal's id, and a grown table is complete before it is published.
+ */
+final class UuidOrdinalIndex {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // slots hold ordinal + 1 so that 0 marks an empty one
+    private volatile int[] slots = new int[16];
+    private int count;
+
+    void put(final long[] high, final long[] low, final int ordinal) {
+        int[] current = slots;
+        if ((count + 1) * 4L > current.length * 3L) {
+            current = grow(current, high, low);
+            slots = current;
+        }
+        if (insert(current, high, low, ordinal)) {
+            count++;
+        }
+    }
+
+    void write(final DataOutputStream out) throws IOException {
+        int[] current = slots;
+        out.writeInt(count);
+        out.writeInt(current.length);
+        IndexCodec.writeInts(out, current, current.length);
+    }
+
+    // into an empty index over the same columns
+    void read(final ByteBuffer in) {
+        int read = in.getInt();
+        int length = in.getInt();
+        if (Integer.bitCount(length) != 1) {
+            throw new IllegalArgumentException("Ordinal table of " + length + " slots is not a power of two");
+        }
+        slots = IndexCodec.readInts(in, length, length);
+        count = read;
+    }
+
+    int get(final long high, final long low, final long[] highs, final long[] lows, final int size) {
+        int[] current = slots;
+        int mask = current.length - 1;
+        for (int slot = slot(high, low, mask); ; slot = (slot + 1) & mask) {
+            int value = (int) SLOTS.getAcquire(current, slot);
+            if (value == 0) {
+                return -1;
+            }
+            int ordinal = value - 1;
+            // ordinals past the caller's size may not be in its columns
+            if (ordinal < size && highs[ordinal] == high && lows[ordinal] == low) {
+                return ordinal;
+            }
+        }
+    }
+
+    // returns whether the key was new
+    private static boolean insert(final int[] slots, final long[] high, final long[] low, final int ordinal) {
+        int mask = slots.length - 1;
+        for (int slot = slot(high[ordinal], low[ordinal], mask); ; slot = (slot + 1) & mask) {
+            int existing = slots[slot] - 1;
+            if (existing < 0) {
+                SLOTS.setRelease(slots, slot, ordinal + 1);
+                return true;
+            }
+            if (high[existing] == high[ordinal] && low[existing] == low[ordinal]) {
+                SLOTS.setRelease(slots, slot, ordinal + 1);
+                return false;
+            }
+        }
+    }
+
+    private static int[] grow(final int[] slots, final long[] high, final long[] low) {
+        int[] grown = new int[slots.length * 2];
+        for (final int value : slots) {
+            if (value != 0) {
+                insert(grown, high, low, value - 1);
+            }
+        }
+        return grown;
+    }
+
+    private static int slot(final long high, final long low, final int mask) {
+        long hash = (high ^ Long.rotateLeft(low, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,127 @@
+package com.sb.service;
+
+import java.util.Arrays;
+
+/**
+ * Optimal string alignment distance against one pattern of at most 64 characters, computed with
+ * Hyyrö's bit-parallel extension of Myers' algorithm: a whole column of the edit distance table is
+ * kept in two bit vectors and advanced with a handful of word operations per text character, so the
+ * cost is linear in the text length whatever the distance bound. Transpositions are handled by
+ * carrying the previous character's match mask; without them this is Myers' Levenshtein distance.
+ *
+ * The constructor fills a match mask per pattern character once, so scoring many texts against the
+ * same query only pays for the scan. Instances are immutable and can be shared between threads.
+ */
+public final class BitParallelDistance {
+
+    public static final int MAX_PATTERN_LENGTH = Long.SIZE;
+
+    private final String pattern;
+    private final boolean transpositions;
+    private final long[] asciiMasks = new long[128];
+    // one entry per distinct pattern character outside ASCII
+    private final char[] otherChars;
+    private final long[] otherMasks;
+
+    public BitParallelDistance(CharSequence pattern) {
+        this(pattern, true);
+    }
+
+    BitParallelDistance(CharSequence pattern, boolean transpositions) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Input strings cannot be null");
+        }
+        if (pattern.length() > MAX_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("Pattern longer than " + MAX_PATTERN_LENGTH + " characters");
+        }
+        this.pattern = pattern.toString();
+        this.transpositions = transpositions;
+        char[] chars = new char[this.pattern.length()];
+        long[] masks = new long[chars.length];
+        int others = 0;
+        for (int i = 0; i < this.pattern.length(); i++) {
+            char c = this.pattern.charAt(i);
+            if (c < asciiMasks.length) {
+                asciiMasks[c] |= 1L << i;
+                continue;
+            }
+            int at = 0;
+            while (at < others && chars[at] != c) {
+                at++;
+            }
+            if (at == others) {
+                chars[others++] = c;
+            }
+            masks[at] |= 1L << i;
+        }
+        this.otherChars = Arrays.copyOf(chars, others);
+        this.otherMasks = Arrays.copyOf(masks, others);
+    }
+
+    public String pattern() { return pattern; }
+
+    /**
+     * Same contract as {@link Search#distance(CharSequence, CharSequence, int)} with the pattern as
+     * the first argument.
+     */
+    public int distance(CharSequence text, int maxDistance) {
+        if (text == null) {
+            throw new IllegalArgumentException("Input strings cannot be null");
+        }
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Max distance cannot be negative");
+        }
+        int m = pattern.length();
+        int n = text.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (m == 0 || n == 0) {
+            return Math.max(n, m);
+        }
+        long last = 1L << (m - 1);
+        long vp = -1L;
+        long vn = 0;
+        long d0 = 0;
+        long previousMatch = 0;
+        int distance = m;
+        for (int j = 0; j < n; j++) {
+            long match = mask(text.charAt(j));
+            long transposition = transpositions ? ((~d0 & match) << 1) & previousMatch : 0;
+            d0 = (((match & vp) + vp) ^ vp) | match | vn | transposition;
+            long hp = vn | ~(d0 | vp);
+            long hn = d0 & vp;
+            if ((hp & last) != 0) {
+                distance++;
+            } else if ((hn & last) != 0) {
+                distance--;
+            }
+            hp = (hp << 1) | 1;
+            vp = (hn << 1) | ~(d0 | hp);
+            vn = hp & d0;
+            previousMatch = match;
+            // distances never decrease along a diagonal, so the cell of this column on the final
+            // cell's diagonal bounds the result; it is the column's top value plus its vertical deltas
+            int row = m - n + j + 1;
+            if (row > 0) {
+                long rows = row == Long.SIZE ? -1L : (1L << row) - 1;
+                if (j + 1 + Long.bitCount(vp & rows) - Long.bitCount(vn & rows) > maxDistance) {
+                    return maxDistance + 1;
+                }
+            }
+        }
+        return distance <= maxDistance ? distance : maxDistance + 1;
+    }
+
+    private long mask(char c) {
+        if (c < asciiMasks.length) {
+            return asciiMasks[c];
+        }
+        for (int i = 0; i < otherChars.length; i++) {
+            if (otherChars[i] == c) {
+                return otherMasks[i];
+            }
+        }
+        return 0;
+    }
+}
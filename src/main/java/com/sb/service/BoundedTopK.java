@@ -0,0 +1,142 @@
+package com.sb.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the best {@code capacity} items seen so far, ordered by ascending score and then by
+ * arrival sequence, so ties keep the order in which candidates were offered.
+ *
+ * Backed by a binary max-heap over primitive arrays, so offering a candidate that does not make
+ * the cut costs a single comparison and no allocation.
+ */
+class BoundedTopK<T> {
+    private final int capacity;
+    private final int[] scores;
+    private final long[] sequences;
+    private final Object[] items;
+    private int size;
+
+    BoundedTopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.scores = new int[capacity];
+        this.sequences = new long[capacity];
+        this.items = new Object[capacity];
+    }
+
+    boolean isFull() { return size == capacity; }
+
+    int size() { return size; }
+
+    /**
+     * Score of the current worst retained item, or {@link Integer#MAX_VALUE} while there is still room.
+     */
+    int worstScore() { return isFull() ? scores[0] : Integer.MAX_VALUE; }
+
+    /**
+     * Returns true if a candidate with the given score and sequence would be retained.
+     */
+    boolean accepts(int score, long sequence) {
+        return !isFull() || worse(scores[0], sequences[0], score, sequence);
+    }
+
+    boolean offer(T item, int score, long sequence) {
+        if (!isFull()) {
+            scores[size] = score;
+            sequences[size] = sequence;
+            items[size] = item;
+            siftUp(size++);
+            return true;
+        }
+        if (!worse(scores[0], sequences[0], score, sequence)) {
+            return false;
+        }
+        scores[0] = score;
+        sequences[0] = sequence;
+        items[0] = item;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Offers every item retained by {@code other}, e.g. to merge per-partition results.
+     */
+    @SuppressWarnings("unchecked")
+    void offerAll(BoundedTopK<T> other) {
+        for (int i = 0; i < other.size; i++) {
+            offer((T) other.items[i], other.scores[i], other.sequences[i]);
+        }
+    }
+
+    /**
+     * Drains the retained items, best first. The collector is empty afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    List<T> drainSorted() {
+        Object[] sorted = new Object[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = items[0];
+            size--;
+            scores[0] = scores[size];
+            sequences[0] = sequences[size];
+            items[0] = items[size];
+            items[size] = null;
+            siftDown(0);
+        }
+        List<T> result = new ArrayList<>(sorted.length);
+        for (Object item : sorted) {
+            result.add((T) item);
+        }
+        return result;
+    }
+
+    // true if (s1, q1) ranks after (s2, q2)
+    private static boolean worse(int s1, long q1, int s2, long q2) {
+        return s1 > s2 || (s1 == s2 && q1 > q2);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(scores[i], sequences[i], scores[parent], sequences[parent])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int right = left + 1;
+            int worst = left;
+            if (right < size && worse(scores[right], sequences[right], scores[left], sequences[left])) {
+                worst = right;
+            }
+            if (!worse(scores[worst], sequences[worst], scores[i], sequences[i])) {
+                break;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int s = scores[i];
+        scores[i] = scores[j];
+        scores[j] = s;
+        long q = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = q;
+        Object o = items[i];
+        items[i] = items[j];
+        items[j] = o;
+    }
+}
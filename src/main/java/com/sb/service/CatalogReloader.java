@@ -0,0 +1,115 @@
+package com.sb.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.sb.domain.ReloadStatus;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs catalog reloads on a dedicated single-thread pool, so a reload never competes with request
+ * threads and at most one runs at a time, and keeps the status of the most recent jobs.
+ */
+@Component
+public class CatalogReloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogReloader.class);
+
+    private static final int RETAINED_JOBS = 16;
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    /** One reload; the task reports progress through it. */
+    public static final class Job {
+        private final String id = UUID.randomUUID().toString();
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong loaded = new AtomicLong();
+        private volatile long rejected;
+        private volatile ReloadStatus.State state = ReloadStatus.State.RUNNING;
+        private volatile Duration duration;
+        private volatile String error;
+
+        public String id() { return id; }
+
+        public void loaded(long count) { loaded.addAndGet(count); }
+
+        public void rejected(long count) { rejected = count; }
+
+        public ReloadStatus status() {
+            Duration took = duration;
+            return new ReloadStatus(id, state, loaded.get(), rejected, startedAt,
+                took != null ? took.toMillis() : null, error);
+        }
+
+        private void finish(ReloadStatus.State finalState, String message) {
+            duration = Duration.between(startedAt, Instant.now());
+            error = message;
+            state = finalState;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-reload-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Job> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > RETAINED_JOBS;
+        }
+    };
+    private Job running;
+
+    /**
+     * Starts the task in the background and returns its job, or the job already running if there is
+     * one.
+     */
+    public synchronized Job submit(Consumer<Job> task) {
+        if (running != null && running.state == ReloadStatus.State.RUNNING) {
+            return running;
+        }
+        Job job = new Job();
+        jobs.put(job.id, job);
+        running = job;
+        executor.execute(() -> {
+            try {
+                task.accept(job);
+                job.finish(ReloadStatus.State.COMPLETED, null);
+                logger.atInfo()
+                    .addKeyValue("jobId", job.id)
+                    .addKeyValue("durationMs", job.duration.toMillis())
+                    .log("Catalog reload completed");
+            } catch (RuntimeException e) {
+                job.finish(ReloadStatus.State.FAILED, e.getMessage());
+                logger.error("Catalog reload {} failed", job.id, e);
+            }
+        });
+        return job;
+    }
+
+    public synchronized ReloadStatus status(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Unknown reload job: " + id);
+        }
+        return job.status();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,133 @@
+package com.sb.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lazily built DFA accepting every string within {@code maxEdits} optimal string alignment edits of a
+ * query. A state is the last two rows of the capped edit distance table plus the query character the
+ * previous input equals, for transpositions. Not thread-safe; compile one per query.
+ */
+public class LevenshteinAutomaton {
+
+    public static final int DEAD = -1;
+    public static final int MAX_EDITS = 2;
+
+    private static final int NO_CLASS = -1;
+
+    private final int maxEdits;
+    private final int length;
+    private final Map<Character, Integer> classes = new HashMap<>();
+    private final int[] queryClasses;
+
+    private final List<int[]> previousRows = new ArrayList<>();
+    private final List<int[]> rows = new ArrayList<>();
+    private final List<Integer> previousClasses = new ArrayList<>();
+    private final Map<String, Integer> stateIds = new HashMap<>();
+    private int[][] transitions = new int[16][];
+
+    public LevenshteinAutomaton(String query, int maxEdits) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+            throw new IllegalArgumentException("Max edits must be between 0 and " + MAX_EDITS);
+        }
+        this.maxEdits = maxEdits;
+        this.length = query.length();
+        this.queryClasses = new int[length];
+        for (int j = 0; j < length; j++) {
+            // class 0 stands for every character that is not in the query
+            queryClasses[j] = classes.computeIfAbsent(query.charAt(j), c -> classes.size() + 1);
+        }
+
+        int[] none = new int[length + 1];
+        Arrays.fill(none, maxEdits + 1);
+        int[] first = new int[length + 1];
+        for (int j = 0; j <= length; j++) first[j] = Math.min(j, maxEdits + 1);
+        state(none, first, NO_CLASS);
+    }
+
+    public int maxEdits() { return maxEdits; }
+
+    public int start() { return 0; }
+
+    public int stateCount() { return rows.size(); }
+
+    public int step(int state, char c) {
+        if (state == DEAD) {
+            return DEAD;
+        }
+        int charClass = classes.getOrDefault(c, 0);
+        // transitions hold target + 2 so that 0 means not computed yet and 1 means dead
+        int next = transitions[state][charClass];
+        if (next == 0) {
+            next = computeStep(state, charClass) + 2;
+            transitions[state][charClass] = next;
+        }
+        return next - 2;
+    }
+
+    // maxEdits + 1 when over the budget
+    public int distance(int state) {
+        return state == DEAD ? maxEdits + 1 : rows.get(state)[length];
+    }
+
+    public boolean accepts(int state) {
+        return distance(state) <= maxEdits;
+    }
+
+    public boolean accepts(String input) {
+        int state = start();
+        for (int i = 0; i < input.length() && state != DEAD; i++) {
+            state = step(state, input.charAt(i));
+        }
+        return accepts(state);
+    }
+
+    private int computeStep(int state, int charClass) {
+        int over = maxEdits + 1;
+        int[] before = previousRows.get(state);
+        int[] row = rows.get(state);
+        int previousClass = previousClasses.get(state);
+        int[] next = new int[length + 1];
+        next[0] = Math.min(row[0] + 1, over);
+        int min = next[0];
+        for (int j = 1; j <= length; j++) {
+            int cost = charClass == queryClasses[j - 1] ? 0 : 1;
+            int value = Math.min(Math.min(row[j] + 1, next[j - 1] + 1), row[j - 1] + cost);
+            if (j > 1 && charClass != 0 && charClass == queryClasses[j - 2] && previousClass == queryClasses[j - 1]) {
+                value = Math.min(value, before[j - 2] + cost);
+            }
+            next[j] = Math.min(value, over);
+            min = Math.min(min, next[j]);
+        }
+        if (min > maxEdits) {
+            return DEAD;
+        }
+        return state(row, next, charClass);
+    }
+
+    private int state(int[] before, int[] row, int previousClass) {
+        char[] key = new char[2 * (length + 1) + 1];
+        for (int j = 0; j <= length; j++) {
+            key[j] = (char) before[j];
+            key[length + 1 + j] = (char) row[j];
+        }
+        key[key.length - 1] = (char) previousClass;
+        return stateIds.computeIfAbsent(new String(key), k -> {
+            int id = rows.size();
+            previousRows.add(before);
+            rows.add(row);
+            previousClasses.add(previousClass);
+            if (id == transitions.length) {
+                transitions = Arrays.copyOf(transitions, id * 2);
+            }
+            transitions[id] = new int[classes.size() + 1];
+            return id;
+        });
+    }
+}
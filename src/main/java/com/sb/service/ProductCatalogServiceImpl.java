@@ -1,18 +1,33 @@
 package com.sb.service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sb.domain.BatchSearchResult;
+import com.sb.domain.BulkIngestResult;
 import com.sb.domain.Product;
+import com.sb.domain.ProductFilter;
+import com.sb.domain.ProductPage;
+import com.sb.domain.ReloadStatus;
+import com.sb.domain.SearchResult;
+import com.sb.repository.CatalogBuild;
+import com.sb.repository.CatalogSnapshot;
+import com.sb.repository.NameMatch;
 import com.sb.repository.ProductCatalogRepositoryInterface;
 
 @Service
@@ -20,19 +35,42 @@ public class ProductCatalogServiceImpl implements ProductCatalogServiceInterface
 
     private static final Logger logger = LoggerFactory.getLogger(ProductCatalogServiceImpl.class);
 
+    static final int MAX_BATCH_QUERIES = 100;
+
+    // one virtual thread per async search; the deadline, not the pool size, bounds the work
+    private static final Executor SEARCH_EXECUTOR = task -> Thread.ofVirtual().name("search-async").start(task);
+
     private final ProductCatalogRepositoryInterface productRepository;
 
-    private final ObjectMapper objectMapper;
+    private final ProductFeedReader feedReader;
+
+    private final ProductSearchEngine searchEngine;
+
+    private final SearchResultCache searchCache;
+
+    private final CatalogReloader reloader;
+
+    private final SearchMetrics searchMetrics;
 
     public ProductCatalogServiceImpl(ProductCatalogRepositoryInterface productRepository, 
-    ObjectMapper objectMapper) {
+    ProductFeedReader feedReader, ProductSearchEngine searchEngine, SearchResultCache searchCache,
+    CatalogReloader reloader, SearchMetrics searchMetrics) {
 
         this.productRepository = productRepository;
-        this.objectMapper = objectMapper;
+        this.feedReader = feedReader;
+        this.searchEngine = searchEngine;
+        this.searchCache = searchCache;
+        this.reloader = reloader;
+        this.searchMetrics = searchMetrics;
     }
 
 
     public Product addProduct(Product product) {
+        validate(product);
+        return productRepository.save(product);
+    }
+
+    private void validate(Product product) {
         if (product == null) {
             logger.warn("Received null product in addProduct");
             throw new IllegalArgumentException("Product cannot be null");
@@ -57,18 +95,54 @@ public class ProductCatalogServiceImpl implements ProductCatalogServiceInterface
             logger.warn("Product image url is null or empty");
             throw new IllegalArgumentException("Product image url cannot be null or empty");
         }
-        return productRepository.save(product);
     }
 
     public List<Product> getProducts(int page, int size) {
-        List<Product> all = productRepository.findAll();
-        int start = page * size;
+        return getProducts(page, size, ProductFilter.NONE, ProductSort.DEFAULT);
+    }
+
+    /**
+     * One page of the products matching the filter, in catalog or price order. Matching products are
+     * found from the category and price indices, and only the page itself is read.
+     */
+    public List<Product> getProducts(int page, int size, ProductFilter filter, ProductSort sort) {
+        if (filter.isEmpty() && sort == ProductSort.DEFAULT) {
+            return page(productRepository.findAll(), page, size);
+        }
+        CatalogSnapshot snapshot = productRepository.snapshot();
+        int[] ordinals = sort == ProductSort.DEFAULT ? snapshot.filter(filter)
+            : snapshot.sortedByPrice(filter, sort == ProductSort.PRICE_DESC);
+        long start = (long) page * size;
+        if (start >= ordinals.length) {
+            logger.warn("Requested page {} with size {} exceeds matching products", page, size);
+            return List.of();
+        }
+        return snapshot.products(ordinals, (int) start, (int) Math.min(start + size, ordinals.length));
+    }
+
+    private List<Product> page(List<Product> all, int page, int size) {
+        long start = (long) page * size;
         if (start >= all.size()) {
             logger.warn("Requested page {} with size {} exceeds available products", page, size);
             return List.of();
         }
-        int end = Math.min(start + size, all.size());
-        return all.subList(start, end);
+        int end = (int) Math.min(start + size, all.size());
+        return all.subList((int) start, end);
+    }
+
+    public ProductPage getProductsAfter(String cursor, int size) {
+        return getProductsAfter(cursor, size, ProductFilter.NONE);
+    }
+
+    public ProductPage getProductsAfter(String cursor, int size, ProductFilter filter) {
+        // one extra product tells whether there is a next page
+        List<Product> items = filter.isEmpty() ? productRepository.findAfter(cursor, size + 1)
+            : productRepository.snapshot().productsAfter(cursor, size + 1, filter);
+        if (items.size() <= size) {
+            return new ProductPage(items, null);
+        }
+        List<Product> page = items.subList(0, size);
+        return new ProductPage(page, page.get(size - 1).getId());
     }
 
     public Product getProductById(String id) {
@@ -76,31 +150,240 @@ public class ProductCatalogServiceImpl implements ProductCatalogServiceInterface
     }
 
     public List<Product> searchProducts(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            throw new IllegalArgumentException("Search query cannot be null or empty");
+        return searchProducts(query, ProductSearchEngine.DEFAULT_LIMIT);
+    }
+
+    public List<Product> searchProducts(String query, int limit) {
+        return searchProducts(query, limit, SearchMode.SCAN);
+    }
+
+    public List<Product> searchProducts(String query, int limit, SearchMode mode) {
+        return searchProducts(query, limit, mode, LevenshteinAutomaton.MAX_EDITS);
+    }
+
+    public List<Product> searchProducts(String query, int limit, SearchMode mode, int maxEdits) {
+        return searchProducts(query, limit, mode, maxEdits, ProductFilter.NONE, ProductSort.DEFAULT);
+    }
+
+    /**
+     * Searches only the products matching the filter, which are found from the category and price
+     * indices before anything is scored. A price sort reorders the best {@code limit} matches.
+     */
+    public List<Product> searchProducts(String query, int limit, SearchMode mode, int maxEdits, ProductFilter filter,
+        ProductSort sort) {
+        return searchProducts(query, limit, mode, maxEdits, filter, sort, SearchDeadline.NONE).items();
+    }
+
+    /**
+     * Runs the search on a virtual thread, stopping at the timeout with the best results found so far.
+     * Only scan and token searches can be cut short; index lookups always complete. Partial results
+     * are not cached.
+     */
+    public CompletableFuture<SearchResult> searchProductsAsync(String query, int limit, SearchMode mode, int maxEdits,
+        Duration timeout) {
+        SearchDeadline deadline = SearchDeadline.after(timeout);
+        return CompletableFuture.supplyAsync(() -> searchProducts(query, limit, mode, maxEdits, ProductFilter.NONE,
+            ProductSort.DEFAULT, deadline), SEARCH_EXECUTOR);
+    }
+
+    private SearchResult searchProducts(String query, int limit, SearchMode mode, int maxEdits, ProductFilter filter,
+        ProductSort sort, SearchDeadline deadline) {
+        String normalizedQuery = searchKey(query);
+
+        if (mode == SearchMode.AUTOMATON && (maxEdits < 0 || maxEdits > LevenshteinAutomaton.MAX_EDITS)) {
+            logger.warn("Max edits out of bounds for automaton search: {}", maxEdits);
+            throw new IllegalArgumentException("Max edits must be between 0 and " + LevenshteinAutomaton.MAX_EDITS);
         }
 
-        String normalizedQuery = query.toLowerCase();
-        return productRepository.findAll().stream()
-        .sorted(Comparator
-            .comparingInt((Product p) -> {
-                String name = p.getName() != null ? p.getName().toLowerCase() : "";
-                if (name.contains(normalizedQuery)) {
-                    return 0;
-                }
-                return Search.distance(normalizedQuery, name);
-            })
-        )
-        .limit(10)
-        .collect(Collectors.toList());
+        long start = System.nanoTime();
+        CatalogSnapshot snapshot = productRepository.snapshot();
+        // max edits only changes automaton results
+        SearchResultCache.Key key = new SearchResultCache.Key(snapshot.version(), normalizedQuery, limit, mode,
+            mode == SearchMode.AUTOMATON ? maxEdits : 0, filter, sort);
+        List<Product> cached = searchCache.get(key);
+        if (cached != null) {
+            searchMetrics.recordHit(mode, System.nanoTime() - start, cached.size());
+            return new SearchResult(cached, false);
+        }
+        SearchStats stats = new SearchStats();
+        int[] within = snapshot.filter(filter);
+        stats.endStage(SearchStats.Stage.CANDIDATES, start);
+        List<Product> results = search(snapshot, normalizedQuery, limit, mode, maxEdits, within, deadline, stats);
+        if (sort != ProductSort.DEFAULT) {
+            long sortStart = System.nanoTime();
+            Comparator<Product> byPrice = Comparator.comparingDouble(Product::getPrice);
+            results = new ArrayList<>(results);
+            results.sort(sort == ProductSort.PRICE_DESC ? byPrice.reversed() : byPrice);
+            stats.endStage(SearchStats.Stage.RANKING, sortStart);
+        }
+        searchMetrics.recordMiss(mode, System.nanoTime() - start, results.size(), stats);
+        if (deadline.cutShort()) {
+            logger.debug("Search for '{}' hit its deadline, returning {} partial results", normalizedQuery, results.size());
+            return new SearchResult(results, true);
+        }
+        searchCache.put(key, results);
+        return new SearchResult(results, false);
     }
 
-    public void prepopulateProducts() {
+    /**
+     * Searches for every query against one snapshot. Scan searches that miss the cache are answered
+     * together in a single pass over the catalog; other modes run query by query. Each batch is
+     * recorded in the search metrics along with its queries.
+     */
+    public List<BatchSearchResult> searchProductsBatch(List<String> queries, int limit, SearchMode mode, int maxEdits) {
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("Search queries cannot be empty");
+        }
+        if (queries.size() > MAX_BATCH_QUERIES) {
+            logger.warn("Batch of {} search queries over the limit", queries.size());
+            throw new IllegalArgumentException("At most " + MAX_BATCH_QUERIES + " queries per batch");
+        }
+        for (String query : queries) {
+            searchKey(query);
+        }
+        long start = System.nanoTime();
+        if (mode != SearchMode.SCAN) {
+            List<BatchSearchResult> results = queries.stream()
+                .map(query -> new BatchSearchResult(query, searchProducts(query, limit, mode, maxEdits)))
+                .collect(Collectors.toList());
+            searchMetrics.recordBatch(mode, System.nanoTime() - start, queries.size(), null);
+            return results;
+        }
+
+        CatalogSnapshot snapshot = productRepository.snapshot();
+        Map<String, List<Product>> results = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String query : queries) {
+            long lookupStart = System.nanoTime();
+            String normalizedQuery = SearchKeys.of(query);
+            if (results.containsKey(normalizedQuery)) {
+                continue;
+            }
+            List<Product> cached = searchCache.get(new SearchResultCache.Key(snapshot.version(), normalizedQuery, limit, mode, 0));
+            results.put(normalizedQuery, cached);
+            if (cached == null) {
+                misses.add(normalizedQuery);
+            } else {
+                searchMetrics.recordHit(mode, System.nanoTime() - lookupStart, cached.size());
+            }
+        }
+        SearchStats stats = null;
+        if (!misses.isEmpty()) {
+            stats = new SearchStats();
+            List<List<Product>> found = searchEngine.searchAll(snapshot, misses, limit, stats);
+            for (int i = 0; i < misses.size(); i++) {
+                results.put(misses.get(i), found.get(i));
+                searchCache.put(new SearchResultCache.Key(snapshot.version(), misses.get(i), limit, mode, 0), found.get(i));
+            }
+        }
+        searchMetrics.recordBatch(mode, System.nanoTime() - start, queries.size(), stats);
+        return queries.stream()
+            .map(query -> new BatchSearchResult(query, results.get(SearchKeys.of(query))))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Completes the last word of the prefix with the most popular name tokens, keeping the words
+     * before it, e.g. {@code "coffee ma"} to {@code "coffee maker"}.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String normalizedPrefix = SearchKeys.of(prefix);
+        if (normalizedPrefix.isEmpty()) {
+            throw new IllegalArgumentException("Suggestion prefix must contain a letter or digit");
+        }
+        List<String> words = Tokenizer.tokens(normalizedPrefix);
+        String lead = String.join(" ", words.subList(0, words.size() - 1));
+        return productRepository.snapshot().suggest(words.get(words.size() - 1), limit).stream()
+            .map(completion -> lead.isEmpty() ? completion : lead + " " + completion)
+            .collect(Collectors.toList());
+    }
+
+    // the folded query, which must keep a letter or digit: "!!!" folds to "" and would match everything
+    private static String searchKey(String query) {
+        String normalizedQuery = SearchKeys.of(query);
+        if (normalizedQuery.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain a letter or digit");
+        }
+        return normalizedQuery;
+    }
+
+    public SearchResultCache.Stats searchCacheStats() {
+        return searchCache.stats();
+    }
+
+    // within holds the ascending ordinals to search, null for all of them
+    private List<Product> search(CatalogSnapshot snapshot, String normalizedQuery, int limit, SearchMode mode,
+        int maxEdits, int[] within, SearchDeadline deadline, SearchStats stats) {
+        if (within != null && within.length == 0) {
+            return List.of();
+        }
+        if (mode == SearchMode.BKTREE || mode == SearchMode.AUTOMATON) {
+            // the index walk finds and scores candidates in one go
+            long start = System.nanoTime();
+            List<NameMatch> matches = mode == SearchMode.BKTREE
+                ? snapshot.findNearestByName(normalizedQuery, limit, within)
+                : snapshot.findByNameAutomaton(normalizedQuery, maxEdits, within);
+            start = stats.endStage(SearchStats.Stage.SCORING, start);
+            List<Product> results = matches.stream()
+                .limit(limit)
+                .map(NameMatch::product)
+                .collect(Collectors.toList());
+            stats.endStage(SearchStats.Stage.RANKING, start);
+            return results;
+        }
+        if (mode == SearchMode.TOKENS) {
+            return searchEngine.searchTokens(snapshot, Tokenizer.tokens(normalizedQuery), limit, deadline, within, stats);
+        }
+        return searchEngine.search(snapshot, normalizedQuery, limit, deadline, within, stats);
+    }
+
+    public BulkIngestResult bulkAddProducts(InputStream feed) {
         try {
-            var resource = new ClassPathResource("products.json");
-            List<Product> products = objectMapper.readValue(resource.getInputStream(), new TypeReference<>() {});
-            productRepository.clear();
-            productRepository.saveAll(products);
+            BulkIngestResult result = feedReader.read(feed, this::validate, productRepository::saveAll);
+            logger.atInfo()
+                .addKeyValue("accepted", result.accepted())
+                .addKeyValue("rejected", result.rejected())
+                .log("Bulk ingest finished");
+            return result;
+        } catch (JsonProcessingException e) {
+            logger.warn("Malformed product feed: {}", e.getOriginalMessage());
+            throw new IllegalArgumentException("Malformed product feed: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            logger.error("Error reading product feed", e);
+            throw new UncheckedIOException("Error reading product feed", e);
+        }
+    }
+
+    public void prepopulateProducts() {
+        reload(null);
+    }
+
+    public ReloadStatus reloadProducts() {
+        return reloader.submit(this::reload).status();
+    }
+
+    public ReloadStatus getReloadStatus(String jobId) {
+        return reloader.status(jobId);
+    }
+
+    // builds the new catalog next to the live one and swaps it in once complete
+    private void reload(CatalogReloader.Job job) {
+        CatalogBuild build = productRepository.startBuild();
+        try (InputStream feed = feedReader.defaultFeed().getInputStream()) {
+            BulkIngestResult result = feedReader.read(feed, this::validate, batch -> {
+                build.saveAll(batch);
+                if (job != null) {
+                    job.loaded(batch.size());
+                }
+            });
+            if (job != null) {
+                job.rejected(result.rejected());
+            }
+            productRepository.swapIn(build);
+            logger.atInfo()
+                .addKeyValue("accepted", result.accepted())
+                .addKeyValue("rejected", result.rejected())
+                .log("Catalog prepopulated");
         } catch (IOException e) {
             logger.error("Error loading products.json", e);
             throw new RuntimeException("Error loading products.json", e);
@@ -1,14 +1,37 @@
 package com.sb.service;
 
 
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import com.sb.domain.BatchSearchResult;
+import com.sb.domain.BulkIngestResult;
 import com.sb.domain.Product;
+import com.sb.domain.ProductFilter;
+import com.sb.domain.ProductPage;
+import com.sb.domain.ReloadStatus;
+import com.sb.domain.SearchResult;
 
 public interface ProductCatalogServiceInterface {
     Product addProduct(Product product);
     List<Product> getProducts(int page, int size);
+    List<Product> getProducts(int page, int size, ProductFilter filter, ProductSort sort);
+    ProductPage getProductsAfter(String cursor, int size);
+    ProductPage getProductsAfter(String cursor, int size, ProductFilter filter);
     Product getProductById(String id);
     List<Product> searchProducts(String query);
+    List<Product> searchProducts(String query, int limit);
+    List<Product> searchProducts(String query, int limit, SearchMode mode);
+    List<Product> searchProducts(String query, int limit, SearchMode mode, int maxEdits);
+    List<Product> searchProducts(String query, int limit, SearchMode mode, int maxEdits, ProductFilter filter, ProductSort sort);
+    CompletableFuture<SearchResult> searchProductsAsync(String query, int limit, SearchMode mode, int maxEdits, Duration timeout);
+    List<BatchSearchResult> searchProductsBatch(List<String> queries, int limit, SearchMode mode, int maxEdits);
+    List<String> suggest(String prefix, int limit);
+    SearchResultCache.Stats searchCacheStats();
+    BulkIngestResult bulkAddProducts(InputStream feed);
     void prepopulateProducts();
+    ReloadStatus reloadProducts();
+    ReloadStatus getReloadStatus(String jobId);
 }
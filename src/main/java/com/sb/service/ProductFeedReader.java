@@ -0,0 +1,95 @@
+package com.sb.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.domain.BulkIngestResult;
+import com.sb.domain.Product;
+
+/**
+ * Streams products out of a JSON feed without materializing it: either a JSON array of products or
+ * newline-delimited JSON (any sequence of top-level product objects). Only one batch of products is
+ * held at a time, so memory stays flat however large the feed is.
+ */
+@Component
+public class ProductFeedReader {
+
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Resource defaultFeed;
+
+    public ProductFeedReader(ObjectMapper objectMapper,
+        @Value("${catalog.ingest.batch-size:1000}") int batchSize,
+        @Value("${catalog.ingest.location:classpath:products.json}") Resource defaultFeed) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.defaultFeed = defaultFeed;
+    }
+
+    /** The feed {@code prepopulateProducts} loads, a classpath resource or file. */
+    public Resource defaultFeed() { return defaultFeed; }
+
+    /**
+     * Reads every product from the feed, hands each to {@code validator} (which rejects it by throwing
+     * {@link IllegalArgumentException}) and passes every batch of accepted products to {@code sink}.
+     * Batches already passed to the sink stay there if the feed turns out to be malformed later on.
+     */
+    public BulkIngestResult read(InputStream feed, Consumer<Product> validator, Consumer<List<Product>> sink)
+        throws IOException {
+        List<BulkIngestResult.Batch> batches = new ArrayList<>();
+        long accepted = 0;
+        long rejected = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(feed)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            List<Product> batch = new ArrayList<>(batchSize);
+            int batchRejected = 0;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                Product product = objectMapper.readValue(parser, Product.class);
+                try {
+                    validator.accept(product);
+                    batch.add(product);
+                } catch (IllegalArgumentException e) {
+                    batchRejected++;
+                }
+                if (batch.size() + batchRejected == batchSize) {
+                    batches.add(flush(batches.size(), batch, batchRejected, sink));
+                    accepted += batch.size();
+                    rejected += batchRejected;
+                    batch = new ArrayList<>(batchSize);
+                    batchRejected = 0;
+                }
+                token = parser.nextToken();
+            }
+            if (batch.size() + batchRejected > 0) {
+                batches.add(flush(batches.size(), batch, batchRejected, sink));
+                accepted += batch.size();
+                rejected += batchRejected;
+            }
+        }
+        return new BulkIngestResult(batches, accepted, rejected);
+    }
+
+    private static BulkIngestResult.Batch flush(int index, List<Product> batch, int rejected,
+        Consumer<List<Product>> sink) {
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        return new BulkIngestResult.Batch(index, batch.size(), rejected);
+    }
+}
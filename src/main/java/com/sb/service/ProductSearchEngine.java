@@ -0,0 +1,641 @@
+package com.sb.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.sb.domain.Product;
+import com.sb.repository.CatalogSnapshot;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Fuzzy product search. Every candidate is scored exactly once and only the best {@code limit}
+ * results are kept in a bounded heap, so a search is linear in the number of candidates. Once the
+ * heap is full, its worst score bounds the edit distance computation of every further candidate.
+ *
+ * Searches over at least {@code parallelThreshold} candidates are split into contiguous partitions
+ * scored on a dedicated fork-join pool, each with its own bounded heap, and the heaps are merged.
+ * Partitions share the best full-heap bound found so far, so one partition's good matches also
+ * prune the others. Ties still go to the lower ordinal, so results do not depend on partitioning.
+ *
+ * Given a {@link SearchDeadline}, scoring stops once it passes and the heap's current contents are
+ * returned as they are.
+ */
+@Component
+public class ProductSearchEngine {
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+    // candidates scored between two deadline checks, minus one
+    private static final int DEADLINE_CHECK_MASK = 255;
+    private static final AtomicInteger POOLS = new AtomicInteger();
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int parallelThreshold;
+
+    /**
+     * Scores candidates {@code from} until {@code to} into one heap per query, pruning each with its
+     * {@code bounds} entry.
+     */
+    private interface RangeScorer {
+        void score(int from, int to, BoundedTopK<Product>[] topKs, SharedBound[] bounds);
+    }
+
+    /** Sequential engine. */
+    public ProductSearchEngine() {
+        this(1, Integer.MAX_VALUE);
+    }
+
+    @Autowired
+    public ProductSearchEngine(@Value("${catalog.search.parallel.threads:0}") int threads,
+        @Value("${catalog.search.parallel.threshold:50000}") int parallelThreshold) {
+        if (parallelThreshold <= 0) {
+            throw new IllegalArgumentException("Parallel search threshold must be positive");
+        }
+        this.parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.parallelThreshold = parallelThreshold;
+        if (parallelism > 1) {
+            int poolId = POOLS.incrementAndGet();
+            this.pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("search-" + poolId + "-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        } else {
+            this.pool = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the best {@code limit} products of the snapshot for a query already folded by
+     * {@link SearchKeys}, best match first. A name containing the query scores 0, anything else
+     * scores its edit distance to the query. Products with equal scores keep their insertion order.
+     * Names are the ones the snapshot precomputed at save time.
+     */
+    public List<Product> search(CatalogSnapshot snapshot, String normalizedQuery, int limit) {
+        return search(snapshot, normalizedQuery, limit, SearchDeadline.NONE);
+    }
+
+    public List<Product> search(CatalogSnapshot snapshot, String normalizedQuery, int limit, SearchDeadline deadline) {
+        return search(snapshot, normalizedQuery, limit, deadline, null);
+    }
+
+    /**
+     * Searches only the given ascending ordinals, e.g. the products matching a filter; null searches
+     * the whole snapshot.
+     */
+    public List<Product> search(CatalogSnapshot snapshot, String normalizedQuery, int limit, SearchDeadline deadline,
+        int[] within) {
+        return search(snapshot, normalizedQuery, limit, deadline, within, new SearchStats());
+    }
+
+    /**
+     * Also adds the work done and the time per stage to {@code stats}. The n-gram shortlist holds
+     * every name within {@link CatalogSnapshot#candidateEdits()} of the query, so once its best
+     * {@code limit} all score within that, nothing off the shortlist can beat them. Otherwise the
+     * products off the shortlist are scored into the shortlist's heap, so no product is scored twice.
+     */
+    public List<Product> search(CatalogSnapshot snapshot, String normalizedQuery, int limit, SearchDeadline deadline,
+        int[] within, SearchStats stats) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive");
+        }
+        long start = System.nanoTime();
+        int[] shortlist = snapshot.searchCandidates(normalizedQuery);
+        int[] candidates = intersect(shortlist, within);
+        stats.endStage(SearchStats.Stage.CANDIDATES, start);
+        // compiled once and shared read-only by every partition
+        Search.Distance distance = Search.compile(normalizedQuery);
+        BoundedTopK<Product> topK = scan(snapshot, normalizedQuery, distance, limit, deadline, candidates, null, null, stats);
+        if (shortlist != null && !settled(topK, snapshot.candidateEdits()) && !deadline.reached()) {
+            topK = scan(snapshot, normalizedQuery, distance, limit, deadline, within, shortlist, topK, stats);
+        }
+        return ranked(topK, stats);
+    }
+
+    // scores the candidates, or every product for null, except the ascending ordinals to skip, into
+    // a heap holding the seed's results too
+    private BoundedTopK<Product> scan(CatalogSnapshot snapshot, String normalizedQuery, Search.Distance distance,
+        int limit, SearchDeadline deadline, int[] candidates, int[] skip, BoundedTopK<Product> seed, SearchStats stats) {
+        int count = candidates != null ? candidates.length : snapshot.size();
+        BoundedTopK<Product>[] seeds = noSeeds(1);
+        seeds[0] = seed;
+        return topK(count, limit, seeds, stats, (from, to, topKs, bounds) -> {
+            BoundedTopK<Product> topK = topKs[0];
+            SharedBound bound = bounds[0];
+            int skipped = skip != null && from < to ? lowerBound(skip, candidates != null ? candidates[from] : from) : 0;
+            long scored = 0;
+            long distances = 0;
+            for (int i = from; i < to; i++) {
+                // a later candidate only gets in by beating the current worst score outright
+                int threshold = bound.threshold(topK);
+                if (threshold < 0 || ((i - from) & DEADLINE_CHECK_MASK) == 0 && deadline.reached()) {
+                    break;
+                }
+                int ordinal = candidates != null ? candidates[i] : i;
+                if (skip != null) {
+                    while (skipped < skip.length && skip[skipped] < ordinal) {
+                        skipped++;
+                    }
+                    if (skipped < skip.length && skip[skipped] == ordinal) {
+                        continue;
+                    }
+                }
+                scored++;
+                CharSequence name = snapshot.searchName(ordinal);
+                int score;
+                if (contains(name, normalizedQuery)) {
+                    score = 0;
+                } else {
+                    score = distance.to(name, threshold);
+                    distances++;
+                }
+                if (score <= threshold && topK.offer(snapshot.product(ordinal), score, ordinal)) {
+                    bound.update(topK);
+                }
+            }
+            stats.addScored(scored, distances);
+        })[0];
+    }
+
+    // true once the heap holds limit names within the shortlist's edits, which nothing off it can beat
+    private static boolean settled(BoundedTopK<?> topK, int candidateEdits) {
+        return topK.isFull() && topK.worstScore() <= candidateEdits;
+    }
+
+    /**
+     * Runs {@link #search(CatalogSnapshot, String, int)} for every query in one pass over the
+     * catalog: each product's name is read once and scored against all queries that have it as a
+     * candidate, each query keeping its own heap and bound. Queries their shortlist does not settle
+     * score the products off it in a second pass, into the heap of the first. Results are in query
+     * order.
+     */
+    public List<List<Product>> searchAll(CatalogSnapshot snapshot, List<String> normalizedQueries, int limit) {
+        return searchAll(snapshot, normalizedQueries, limit, new SearchStats());
+    }
+
+    /** Also adds the work done and the time per stage of the whole pass to {@code stats}. */
+    public List<List<Product>> searchAll(CatalogSnapshot snapshot, List<String> normalizedQueries, int limit,
+        SearchStats stats) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive");
+        }
+        long start = System.nanoTime();
+        int queries = normalizedQueries.size();
+        String[] query = normalizedQueries.toArray(new String[0]);
+        int[][] candidates = new int[queries][];
+        for (int q = 0; q < queries; q++) {
+            candidates[q] = snapshot.searchCandidates(query[q]);
+        }
+        stats.endStage(SearchStats.Stage.CANDIDATES, start);
+        BoundedTopK<Product>[] topKs = scanAll(snapshot, query, candidates, new int[queries][], noSeeds(queries),
+            limit, stats);
+        int[] unsettled = IntStream.range(0, queries)
+            .filter(q -> candidates[q] != null && !settled(topKs[q], snapshot.candidateEdits()))
+            .toArray();
+        if (unsettled.length > 0) {
+            String[] rest = new String[unsettled.length];
+            int[][] skip = new int[unsettled.length][];
+            BoundedTopK<Product>[] seeds = noSeeds(unsettled.length);
+            for (int u = 0; u < unsettled.length; u++) {
+                rest[u] = query[unsettled[u]];
+                skip[u] = candidates[unsettled[u]];
+                seeds[u] = topKs[unsettled[u]];
+            }
+            BoundedTopK<Product>[] full = scanAll(snapshot, rest, new int[unsettled.length][], skip, seeds, limit, stats);
+            for (int u = 0; u < unsettled.length; u++) {
+                topKs[unsettled[u]] = full[u];
+            }
+        }
+        List<List<Product>> results = new ArrayList<>(queries);
+        long rankingStart = System.nanoTime();
+        for (BoundedTopK<Product> topK : topKs) {
+            results.add(topK.drainSorted());
+        }
+        stats.endStage(SearchStats.Stage.RANKING, rankingStart);
+        return results;
+    }
+
+    // a null candidates entry scores every product but the entry's ascending ordinals to skip, if any
+    private BoundedTopK<Product>[] scanAll(CatalogSnapshot snapshot, String[] query, int[][] candidates, int[][] skip,
+        BoundedTopK<Product>[] seeds, int limit, SearchStats stats) {
+        int queries = query.length;
+        Search.Distance[] compiled = new Search.Distance[queries];
+        for (int q = 0; q < queries; q++) {
+            compiled[q] = Search.compile(query[q]);
+        }
+        return topK(snapshot.size(), limit, seeds, stats, (from, to, topKs, bounds) -> {
+            // next position in each query's candidates, or -1 once the query is done with this range
+            int[] next = new int[queries];
+            // next position in each query's ordinals to skip
+            int[] skipped = new int[queries];
+            for (int q = 0; q < queries; q++) {
+                next[q] = candidates[q] == null ? from : lowerBound(candidates[q], from);
+                skipped[q] = skip[q] == null ? 0 : lowerBound(skip[q], from);
+            }
+            int ordinal = from;
+            long scored = 0;
+            long distances = 0;
+            while (true) {
+                ordinal = nextOrdinal(candidates, next, ordinal, to);
+                if (ordinal >= to) {
+                    break;
+                }
+                CharSequence name = snapshot.searchName(ordinal);
+                Product product = null;
+                for (int q = 0; q < queries; q++) {
+                    if (next[q] < 0 || candidates[q] != null
+                        && (next[q] == candidates[q].length || candidates[q][next[q]] != ordinal)) {
+                        continue;
+                    }
+                    if (candidates[q] != null) {
+                        next[q]++;
+                    }
+                    if (skip[q] != null) {
+                        while (skipped[q] < skip[q].length && skip[q][skipped[q]] < ordinal) {
+                            skipped[q]++;
+                        }
+                        if (skipped[q] < skip[q].length && skip[q][skipped[q]] == ordinal) {
+                            continue;
+                        }
+                    }
+                    int threshold = bounds[q].threshold(topKs[q]);
+                    if (threshold < 0) {
+                        next[q] = -1;
+                        continue;
+                    }
+                    scored++;
+                    int score;
+                    if (contains(name, query[q])) {
+                        score = 0;
+                    } else {
+                        score = compiled[q].to(name, threshold);
+                        distances++;
+                    }
+                    if (score <= threshold) {
+                        if (product == null) {
+                            product = snapshot.product(ordinal);
+                        }
+                        if (topKs[q].offer(product, score, ordinal)) {
+                            bounds[q].update(topKs[q]);
+                        }
+                    }
+                }
+                ordinal++;
+            }
+            stats.addScored(scored, distances);
+        });
+    }
+
+    // ordinals in both ascending arrays, where null stands for every ordinal
+    private static int[] intersect(int[] left, int[] right) {
+        if (left == null || right == null) {
+            return left != null ? left : right;
+        }
+        int[] both = new int[Math.min(left.length, right.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                both[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, count);
+    }
+
+    // the smallest ordinal from {@code ordinal} on that some unfinished query still has to score
+    private static int nextOrdinal(int[][] candidates, int[] next, int ordinal, int to) {
+        int smallest = to;
+        for (int q = 0; q < next.length; q++) {
+            if (next[q] < 0) {
+                continue;
+            }
+            if (candidates[q] == null) {
+                return ordinal;
+            }
+            if (next[q] < candidates[q].length && candidates[q][next[q]] < smallest) {
+                smallest = candidates[q][next[q]];
+            }
+        }
+        return smallest;
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the best {@code limit} products for a tokenized query, best match first. Each query
+     * token is matched against its closest name token (0 if the name token contains it, else their
+     * edit distance, capped at the query token's length) and the per-token scores are summed, so
+     * word order does not matter. Token distances are computed once per distinct dictionary token
+     * and reused across products.
+     */
+    public List<Product> searchTokens(CatalogSnapshot catalog, List<String> queryTokens, int limit) {
+        return searchTokens(catalog, queryTokens, limit, SearchDeadline.NONE);
+    }
+
+    public List<Product> searchTokens(CatalogSnapshot catalog, List<String> queryTokens, int limit,
+        SearchDeadline deadline) {
+        return searchTokens(catalog, queryTokens, limit, deadline, null);
+    }
+
+    /** Token search over the given ascending ordinals only, or the whole snapshot for null. */
+    public List<Product> searchTokens(CatalogSnapshot catalog, List<String> queryTokens, int limit,
+        SearchDeadline deadline, int[] within) {
+        return searchTokens(catalog, queryTokens, limit, deadline, within, new SearchStats());
+    }
+
+    /** Also adds the work done and the time per stage to {@code stats}. */
+    public List<Product> searchTokens(CatalogSnapshot catalog, List<String> queryTokens, int limit,
+        SearchDeadline deadline, int[] within, SearchStats stats) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive");
+        }
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+        String[] query = queryTokens.toArray(new String[0]);
+        Search.Distance[] compiled = new Search.Distance[query.length];
+        for (int q = 0; q < query.length; q++) {
+            compiled[q] = Search.compile(query[q]);
+        }
+
+        int count = within != null ? within.length : catalog.size();
+        return ranked(topK(count, limit, noSeeds(1), stats, (from, to, topKs, bounds) -> {
+            BoundedTopK<Product> topK = topKs[0];
+            SharedBound bound = bounds[0];
+            // sized by the tokens this partition meets, not by the dictionary
+            TokenMemo[] memo = new TokenMemo[query.length];
+            Arrays.setAll(memo, q -> new TokenMemo());
+            int n = from;
+            long distances = 0;
+            for (; n < to; n++) {
+                int threshold = bound.threshold(topK);
+                if (threshold < 0 || ((n - from) & DEADLINE_CHECK_MASK) == 0 && deadline.reached()) {
+                    break;
+                }
+                int ordinal = within != null ? within[n] : n;
+                int tokensStart = catalog.nameTokensStart(ordinal);
+                int tokensEnd = catalog.nameTokensEnd(ordinal);
+                int total = 0;
+                for (int q = 0; q < query.length && total <= threshold; q++) {
+                    int best = query[q].length();
+                    for (int i = tokensStart; i < tokensEnd && best > 0; i++) {
+                        int token = catalog.nameToken(i);
+                        int score = memo[q].get(token);
+                        if (score < 0) {
+                            score = tokenScore(query[q], compiled[q], catalog.token(token));
+                            memo[q].put(token, score);
+                            distances++;
+                        }
+                        best = Math.min(best, score);
+                    }
+                    total += best;
+                }
+                if (total <= threshold && topK.offer(catalog.product(ordinal), total, ordinal)) {
+                    bound.update(topK);
+                }
+            }
+            stats.addScored(n - from, distances);
+        })[0], stats);
+    }
+
+    // scores into one heap per query, holding its seed's results too where the query has a seed
+    private BoundedTopK<Product>[] topK(int count, int limit, BoundedTopK<Product>[] seeds, SearchStats stats,
+        RangeScorer scorer) {
+        long start = System.nanoTime();
+        int queries = seeds.length;
+        SharedBound[] bounds = new SharedBound[queries];
+        BoundedTopK<Product>[] topKs;
+        if (pool == null || count < parallelThreshold) {
+            Arrays.setAll(bounds, q -> seeds[q] != null ? new SharedBound(seeds[q]) : SharedBound.NONE);
+            topKs = newHeaps(queries, limit);
+            scorer.score(0, count, topKs, bounds);
+        } else {
+            Arrays.setAll(bounds, q -> seeds[q] != null ? new SharedBound(seeds[q]) : new SharedBound());
+            int partitionSize = Math.max(1, (count + parallelism * PARTITIONS_PER_THREAD - 1) / (parallelism * PARTITIONS_PER_THREAD));
+            topKs = pool.invoke(new PartitionTask(scorer, 0, count, partitionSize, limit, bounds));
+        }
+        for (int q = 0; q < queries; q++) {
+            if (seeds[q] != null) {
+                topKs[q].offerAll(seeds[q]);
+            }
+        }
+        stats.endStage(SearchStats.Stage.SCORING, start);
+        return topKs;
+    }
+
+    private static List<Product> ranked(BoundedTopK<Product> topK, SearchStats stats) {
+        long start = System.nanoTime();
+        List<Product> results = topK.drainSorted();
+        stats.endStage(SearchStats.Stage.RANKING, start);
+        return results;
+    }
+
+    // one null seed per query, to be filled in for the queries that have one
+    @SuppressWarnings("unchecked")
+    private static BoundedTopK<Product>[] noSeeds(int queries) {
+        return new BoundedTopK[queries];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BoundedTopK<Product>[] newHeaps(int queries, int limit) {
+        BoundedTopK<Product>[] topKs = new BoundedTopK[queries];
+        Arrays.setAll(topKs, q -> new BoundedTopK<>(limit));
+        return topKs;
+    }
+
+    private static final class PartitionTask extends RecursiveTask<BoundedTopK<Product>[]> {
+        private final RangeScorer scorer;
+        private final int from;
+        private final int to;
+        private final int partitionSize;
+        private final int limit;
+        private final SharedBound[] bounds;
+
+        PartitionTask(RangeScorer scorer, int from, int to, int partitionSize, int limit, SharedBound[] bounds) {
+            this.scorer = scorer;
+            this.from = from;
+            this.to = to;
+            this.partitionSize = partitionSize;
+            this.limit = limit;
+            this.bounds = bounds;
+        }
+
+        @Override
+        protected BoundedTopK<Product>[] compute() {
+            if (to - from <= partitionSize) {
+                BoundedTopK<Product>[] topKs = newHeaps(bounds.length, limit);
+                scorer.score(from, to, topKs, bounds);
+                return topKs;
+            }
+            int middle = (from + to) >>> 1;
+            PartitionTask right = new PartitionTask(scorer, middle, to, partitionSize, limit, bounds);
+            right.fork();
+            BoundedTopK<Product>[] merged = new PartitionTask(scorer, from, middle, partitionSize, limit, bounds).compute();
+            BoundedTopK<Product>[] rightTopKs = right.join();
+            for (int q = 0; q < merged.length; q++) {
+                merged[q].offerAll(rightTopKs[q]);
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Worst score of the best full partition heap so far. Any full heap proves the overall top
+     * {@code limit} scores are at most its worst, so candidates scoring above that cannot make it.
+     */
+    private static class SharedBound {
+        static final SharedBound NONE = new SharedBound() {
+            @Override
+            void update(BoundedTopK<?> topK) {}
+        };
+
+        private final AtomicInteger worst;
+
+        SharedBound() {
+            worst = new AtomicInteger(Integer.MAX_VALUE);
+        }
+
+        // a heap the partitions' results are merged into; its items may win ties against theirs
+        SharedBound(BoundedTopK<?> seed) {
+            worst = new AtomicInteger(seed.worstScore());
+        }
+
+        // within a partition later candidates lose ties, across partitions they may still win them
+        int threshold(BoundedTopK<?> topK) {
+            return Math.min(topK.worstScore() - 1, worst.get());
+        }
+
+        void update(BoundedTopK<?> topK) {
+            if (topK.isFull()) {
+                int score = topK.worstScore();
+                if (score < worst.get()) {
+                    worst.accumulateAndGet(score, Math::min);
+                }
+            }
+        }
+    }
+
+    // open addressing map from token id to score, -1 for a missing token
+    private static final class TokenMemo {
+        private int[] keys = new int[64];
+        private int[] scores = new int[64];
+        private int size;
+
+        TokenMemo() {
+            Arrays.fill(keys, -1);
+        }
+
+        int get(int token) {
+            int mask = keys.length - 1;
+            for (int slot = mix(token) & mask; keys[slot] >= 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == token) {
+                    return scores[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(int token, int score) {
+            if (2 * (size + 1) > keys.length) {
+                int[] oldKeys = keys;
+                int[] oldScores = scores;
+                keys = new int[oldKeys.length * 2];
+                scores = new int[oldKeys.length * 2];
+                Arrays.fill(keys, -1);
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] >= 0) {
+                        put(oldKeys[i], oldScores[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int slot = mix(token) & mask;
+            while (keys[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = token;
+            scores[slot] = score;
+            size++;
+        }
+
+        private static int mix(int token) {
+            return token * 0x9E3779B9;
+        }
+    }
+
+    // distances past the query token's length lose to the cap in searchTokens anyway
+    private static int tokenScore(String queryToken, Search.Distance distance, String nameToken) {
+        return nameToken.contains(queryToken) ? 0 : distance.to(nameToken, queryToken.length());
+    }
+
+    static int score(String normalizedQuery, CharSequence searchName) {
+        return score(normalizedQuery, searchName, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Scores a candidate name, returning any value above {@code maxDistance} once the candidate is
+     * known to score worse than that.
+     */
+    static int score(String normalizedQuery, CharSequence name, int maxDistance) {
+        if (contains(name, normalizedQuery)) {
+            return 0;
+        }
+        return Search.distance(normalizedQuery, name, maxDistance);
+    }
+
+    private static boolean contains(CharSequence text, String pattern) {
+        if (text instanceof String string) {
+            return string.contains(pattern);
+        }
+        int last = text.length() - pattern.length();
+        for (int i = 0; i <= last; i++) {
+            int j = 0;
+            while (j < pattern.length() && text.charAt(i + j) == pattern.charAt(j)) {
+                j++;
+            }
+            if (j == pattern.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package com.sb.service;
+
+import java.util.Locale;
+
+// price sorts break ties in catalog order; a search sorts its best matches
+public enum ProductSort {
+    DEFAULT,
+    PRICE_ASC,
+    PRICE_DESC;
+
+    public static ProductSort fromParam(String sort) {
+        if (sort == null || sort.trim().isEmpty()) {
+            return DEFAULT;
+        }
+        try {
+            return valueOf(sort.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort: " + sort);
+        }
+    }
+}
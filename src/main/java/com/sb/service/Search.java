@@ -1,26 +1,151 @@
 package com.sb.service;
 
 public class Search {
-    public static int distance(String a, String b) {
+
+    /** Distances from one compiled query; safe to share between threads once compiled. */
+    @FunctionalInterface
+    public interface Distance {
+        int to(CharSequence text, int maxDistance);
+    }
+
+    private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[3][32]);
+
+    public static int distance(CharSequence a, CharSequence b) {
+        if (a == null || b == null) {
+            throw new IllegalArgumentException("Input strings cannot be null");
+        }
+        return distance(a, b, Math.max(a.length(), b.length()));
+    }
+
+    /**
+     * Optimal string alignment distance between {@code a} and {@code b}, giving up once it is known
+     * to exceed {@code maxDistance}. Returns the exact distance when it is at most {@code maxDistance},
+     * otherwise {@code maxDistance + 1}.
+     *
+     * When either string has at most 64 characters the distance is computed bit-parallel against it
+     * (see {@link BitParallelDistance}), longer pairs fall back to the banded dynamic program. That
+     * compiles a pattern on every call; scoring one query against many texts should {@link #compile}
+     * it once instead.
+     */
+    public static int distance(CharSequence a, CharSequence b, int maxDistance) {
         if (a == null || b == null) {
             throw new IllegalArgumentException("Input strings cannot be null");
         }
-        int[][] dp = new int[a.length() + 1][b.length() + 1];
-        for (int i = 0; i <= a.length(); i++) dp[i][0] = i;
-        for (int j = 0; j <= b.length(); j++) dp[0][j] = j;
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Max distance cannot be negative");
+        }
+        // the distance is symmetric, so either string can be the pattern
+        if (a.length() <= BitParallelDistance.MAX_PATTERN_LENGTH) {
+            return new BitParallelDistance(a).distance(b, maxDistance);
+        }
+        if (b.length() <= BitParallelDistance.MAX_PATTERN_LENGTH) {
+            return new BitParallelDistance(b).distance(a, maxDistance);
+        }
+        return bandedDistance(a, b, maxDistance, true);
+    }
 
-        for (int i = 1; i <= a.length(); i++) {
-            for (int j = 1; j <= b.length(); j++) {
-                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
-                dp[i][j] = Math.min(
-                    Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                    dp[i - 1][j - 1] + cost
+    /**
+     * Compiles the query for {@link #distance(CharSequence, CharSequence, int)} against many texts:
+     * bit-parallel up to 64 characters, the banded dynamic program beyond.
+     */
+    public static Distance compile(String query) {
+        return compile(query, true);
+    }
+
+    /**
+     * Compiles the query for the Levenshtein distance, which counts a transposition as two edits. Unlike
+     * {@link #distance} it obeys the triangle inequality; it is at least that distance and at most twice it.
+     */
+    public static Distance compileLevenshtein(String query) {
+        return compile(query, false);
+    }
+
+    private static Distance compile(String query, boolean transpositions) {
+        if (query == null) {
+            throw new IllegalArgumentException("Input strings cannot be null");
+        }
+        if (query.length() <= BitParallelDistance.MAX_PATTERN_LENGTH) {
+            return new BitParallelDistance(query, transpositions)::distance;
+        }
+        return (text, maxDistance) -> {
+            if (text == null) {
+                throw new IllegalArgumentException("Input strings cannot be null");
+            }
+            if (maxDistance < 0) {
+                throw new IllegalArgumentException("Max distance cannot be negative");
+            }
+            return bandedDistance(query, text, maxDistance, transpositions);
+        };
+    }
+
+    /**
+     * Dynamic programming form of {@link #distance(CharSequence, CharSequence, int)}. Only the
+     * diagonal band of width {@code 2 * maxDistance + 1} is evaluated, using three rolling rows from a
+     * per-thread scratch buffer, and the computation stops as soon as a whole row is over the
+     * threshold.
+     */
+    static int bandedDistance(CharSequence a, CharSequence b, int maxDistance, boolean transpositions) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (n == 0 || m == 0) {
+            return Math.max(n, m);
+        }
+        // the distance never exceeds the longer length, so a wider band buys nothing
+        maxDistance = Math.min(maxDistance, Math.max(n, m));
+        int over = maxDistance + 1;
+
+        int[][] rows = scratch(m + 1);
+        int[] before = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+
+        for (int j = 0; j <= m; j++) previous[j] = Math.min(j, over);
+
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(m, i + maxDistance);
+            current[0] = Math.min(i, over);
+            if (from > 1) current[from - 1] = over;
+            int rowMin = from == 1 ? current[0] : over;
+            char ca = a.charAt(i - 1);
+
+            for (int j = from; j <= to; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(
+                    Math.min(previous[j] + 1, current[j - 1] + 1),
+                    previous[j - 1] + cost
                 );
-                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
-                    dp[i][j] = Math.min(dp[i][j], dp[i - 2][j - 2] + cost);
+                if (transpositions && i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, before[j - 2] + cost);
                 }
+                if (value > over) value = over;
+                current[j] = value;
+                if (value < rowMin) rowMin = value;
+            }
+            if (to < m) current[to + 1] = over;
+            if (rowMin > maxDistance) {
+                return over;
             }
+
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[m];
+    }
+
+    private static int[][] scratch(int length) {
+        int[][] rows = SCRATCH.get();
+        if (rows[0].length < length) {
+            int capacity = Math.max(length, rows[0].length * 2);
+            rows = new int[][] { new int[capacity], new int[capacity], new int[capacity] };
+            SCRATCH.set(rows);
         }
-        return dp[a.length()][b.length()];
+        return rows;
     }
 }
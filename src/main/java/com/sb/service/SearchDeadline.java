@@ -0,0 +1,43 @@
+package com.sb.service;
+
+import java.time.Duration;
+
+/**
+ * Point in time after which a search stops scoring candidates and returns the best results found so
+ * far. Scorers poll {@link #reached()} every few hundred candidates; {@link #cutShort()} then tells
+ * whether any of them stopped early, i.e. whether the results are partial.
+ */
+public final class SearchDeadline {
+
+    /** Never reached: the search always runs to completion. */
+    public static final SearchDeadline NONE = new SearchDeadline(0, false);
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+    private volatile boolean cutShort;
+
+    private SearchDeadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    public static SearchDeadline after(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Search timeout cannot be negative");
+        }
+        return new SearchDeadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    /** True once the deadline has passed; a scorer seeing true stops, so the results become partial. */
+    boolean reached() {
+        if (!bounded) {
+            return false;
+        }
+        if (!cutShort && System.nanoTime() - deadlineNanos >= 0) {
+            cutShort = true;
+        }
+        return cutShort;
+    }
+
+    public boolean cutShort() { return cutShort; }
+}
@@ -0,0 +1,65 @@
+package com.sb.service;
+
+import java.text.Normalizer;
+
+// NFKD without combining marks, lowercased, non-alphanumeric runs as one space: "Café" and "CAFE!" fold to "cafe"
+public class SearchKeys {
+
+    private SearchKeys() {
+    }
+
+    public static String of(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (isFolded(text)) {
+            return text;
+        }
+        String decomposed = isAscii(text) ? text : Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder key = new StringBuilder(decomposed.length());
+        boolean separator = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && key.length() > 0) {
+                    key.append(' ');
+                }
+                key.append(Character.toLowerCase(c));
+                separator = false;
+            } else if (!isMark(c)) {
+                separator = true;
+            }
+        }
+        return key.toString();
+    }
+
+    // already a key: lowercase ascii letters and digits separated by single spaces
+    private static boolean isFolded(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ' ') {
+                if (i == 0 || i == text.length() - 1 || text.charAt(i - 1) == ' ') {
+                    return false;
+                }
+            } else if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMark(char c) {
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+            || type == Character.ENCLOSING_MARK;
+    }
+}
@@ -0,0 +1,111 @@
+package com.sb.service;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Search meters: latency per mode and cache outcome with p50, p99 and p999, the candidates scored,
+ * distances computed and results returned per search, and the time per {@link SearchStats.Stage}.
+ * Candidates and distances are only counted by the scan and token modes; the BK-tree and automaton
+ * modes walk their index instead. Meters are registered up front so recording a search never looks
+ * one up.
+ */
+@Component
+public class SearchMetrics {
+
+    /** Records nothing, for engines and services built outside Spring. */
+    public static final SearchMetrics NONE = new SearchMetrics(new CompositeMeterRegistry());
+
+    private final Timer[][] latency = new Timer[SearchMode.values().length][2];
+    private final Timer[] batchLatency = new Timer[SearchMode.values().length];
+    private final DistributionSummary batchQueries;
+    private final DistributionSummary candidates;
+    private final DistributionSummary distances;
+    private final DistributionSummary results;
+    private final Map<SearchStats.Stage, Timer> stages = new EnumMap<>(SearchStats.Stage.class);
+
+    public SearchMetrics(MeterRegistry registry) {
+        for (SearchMode mode : SearchMode.values()) {
+            for (int hit = 0; hit < 2; hit++) {
+                latency[mode.ordinal()][hit] = Timer.builder("catalog.search.latency")
+                    .description("Time to answer a search, cache lookups included")
+                    .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                    .tag("cache", hit == 1 ? "hit" : "miss")
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            }
+        }
+        for (SearchMode mode : SearchMode.values()) {
+            batchLatency[mode.ordinal()] = Timer.builder("catalog.search.batch.latency")
+                .description("Time to answer a batch of searches")
+                .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+        }
+        this.batchQueries = DistributionSummary.builder("catalog.search.batch.queries")
+            .description("Queries per search batch")
+            .baseUnit("queries")
+            .register(registry);
+        this.candidates = DistributionSummary.builder("catalog.search.candidates")
+            .description("Candidates scored per search")
+            .baseUnit("candidates")
+            .register(registry);
+        this.distances = DistributionSummary.builder("catalog.search.distances")
+            .description("Edit distances computed per search")
+            .baseUnit("distances")
+            .register(registry);
+        this.results = DistributionSummary.builder("catalog.search.results")
+            .description("Results returned per search")
+            .baseUnit("results")
+            .register(registry);
+        for (SearchStats.Stage stage : SearchStats.Stage.values()) {
+            stages.put(stage, Timer.builder("catalog.search.stage")
+                .description("Time spent in one stage of a search that missed the cache")
+                .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                .register(registry));
+        }
+    }
+
+    void recordHit(SearchMode mode, long nanos, int resultCount) {
+        latency[mode.ordinal()][1].record(nanos, TimeUnit.NANOSECONDS);
+        results.record(resultCount);
+    }
+
+    void recordMiss(SearchMode mode, long nanos, int resultCount, SearchStats stats) {
+        latency[mode.ordinal()][0].record(nanos, TimeUnit.NANOSECONDS);
+        results.record(resultCount);
+        recordWork(mode, stats);
+    }
+
+    /**
+     * A whole batch; its queries are recorded on their own as well, except that the shared scan pass
+     * over the cache misses, if any, is recorded as one search in {@code stats}.
+     */
+    void recordBatch(SearchMode mode, long nanos, int queryCount, SearchStats stats) {
+        batchLatency[mode.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        batchQueries.record(queryCount);
+        if (stats != null) {
+            recordWork(mode, stats);
+        }
+    }
+
+    private void recordWork(SearchMode mode, SearchStats stats) {
+        if (mode == SearchMode.SCAN || mode == SearchMode.TOKENS) {
+            candidates.record(stats.candidates());
+            distances.record(stats.distances());
+        }
+        for (Map.Entry<SearchStats.Stage, Timer> stage : stages.entrySet()) {
+            stage.getValue().record(stats.nanos(stage.getKey()), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.sb.service;
+
+import java.util.Locale;
+
+/**
+ * How {@code /api/search} matches the query against product names.
+ */
+public enum SearchMode {
+    /** Score every product: names containing the query first, then by edit distance. */
+    SCAN,
+    /** Nearest names by edit distance, answered from the BK-tree name index. */
+    BKTREE,
+    /** Names within a small edit budget, found by running a Levenshtein automaton over the sorted name dictionary. */
+    AUTOMATON,
+    /** Word by word: each query token against its closest name token, summed, regardless of word order. */
+    TOKENS;
+
+    public static SearchMode fromParam(String mode) {
+        if (mode == null || mode.trim().isEmpty()) {
+            return SCAN;
+        }
+        try {
+            return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown search mode: " + mode);
+        }
+    }
+}
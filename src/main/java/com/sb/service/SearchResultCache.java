@@ -0,0 +1,196 @@
+package com.sb.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.sb.domain.Product;
+import com.sb.domain.ProductFilter;
+
+/**
+ * Segmented LRU cache of search results with a ttl. Keys carry the snapshot version; once a newer one is
+ * seen every entry is dropped and results from older snapshots are no longer stored.
+ */
+@Component
+public class SearchResultCache implements MeterBinder {
+
+    public record Key(long version, String normalizedQuery, int limit, SearchMode mode, int maxEdits,
+        ProductFilter filter, ProductSort sort) {
+
+        public Key(long version, String normalizedQuery, int limit, SearchMode mode, int maxEdits) {
+            this(version, normalizedQuery, limit, mode, maxEdits, ProductFilter.NONE, ProductSort.DEFAULT);
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size) {}
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Segment[] segments;
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private record Entry(List<Product> results, long expiresAt) {}
+
+    private static final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        final int maxEntries;
+
+        Segment(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public SearchResultCache(@Value("${catalog.search.cache.max-entries:10000}") int maxEntries,
+        @Value("${catalog.search.cache.ttl:60s}") Duration ttl) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("Cache TTL cannot be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        // small caches stay a single exact LRU
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / MIN_SEGMENT_ENTRIES)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maxEntries / count + (i < maxEntries % count ? 1 : 0));
+        }
+    }
+
+    public boolean enabled() { return maxEntries > 0 && ttlNanos > 0; }
+
+    public List<Product> get(Key key) {
+        if (!enabled()) {
+            return null;
+        }
+        advance(key.version());
+        Segment segment = segmentFor(key);
+        Entry entry;
+        segment.lock.lock();
+        try {
+            entry = segment.entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() <= 0) {
+                segment.entries.remove(key);
+                evictions.increment();
+                entry = null;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.results();
+    }
+
+    public void put(Key key, List<Product> results) {
+        if (!enabled()) {
+            return;
+        }
+        Entry entry = new Entry(List.copyOf(results), System.nanoTime() + ttlNanos);
+        advance(key.version());
+        Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            // read under the segment lock: an invalidation that raced past us clears this segment after
+            if (key.version() < version.get()) {
+                return;
+            }
+            segment.entries.put(key, entry);
+            Iterator<Map.Entry<Key, Entry>> eldest = segment.entries.entrySet().iterator();
+            while (segment.entries.size() > segment.maxEntries) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("catalog.search.cache.requests", this, cache -> cache.stats().hits())
+            .description("Search cache lookups")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("catalog.search.cache.requests", this, cache -> cache.stats().misses())
+            .description("Search cache lookups")
+            .tag("result", "miss")
+            .register(registry);
+        FunctionCounter.builder("catalog.search.cache.evictions", this, cache -> cache.stats().evictions())
+            .description("Search cache entries dropped for size or age")
+            .register(registry);
+        FunctionCounter.builder("catalog.search.cache.invalidations", this, cache -> cache.stats().invalidations())
+            .description("Times a catalog write cleared the search cache")
+            .register(registry);
+        Gauge.builder("catalog.search.cache.size", this, cache -> cache.stats().size())
+            .description("Search cache entries")
+            .register(registry);
+    }
+
+    private void advance(long seenVersion) {
+        long current = version.get();
+        while (seenVersion > current) {
+            if (version.compareAndSet(current, seenVersion)) {
+                boolean cleared = false;
+                for (final Segment segment : segments) {
+                    segment.lock.lock();
+                    try {
+                        cleared |= !segment.entries.isEmpty();
+                        segment.entries.clear();
+                    } finally {
+                        segment.lock.unlock();
+                    }
+                }
+                if (cleared) {
+                    invalidations.increment();
+                }
+                return;
+            }
+            current = version.get();
+        }
+    }
+
+    private Segment segmentFor(Key key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+}
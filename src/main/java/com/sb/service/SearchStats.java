@@ -0,0 +1,43 @@
+package com.sb.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Work done by one search: candidates scored, edit distances computed and the time spent in each
+ * stage. Filled in by the engine and the service, then recorded by {@link SearchMetrics}. Partitions
+ * scored in parallel add their counts concurrently; stage times are only added by the searching
+ * thread.
+ */
+public final class SearchStats {
+
+    public enum Stage {
+        /** Filters and n-gram candidate lookup. */
+        CANDIDATES,
+        /** Scoring candidates into the bounded heaps. */
+        SCORING,
+        /** Ordering the kept results. */
+        RANKING
+    }
+
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder distances = new LongAdder();
+    private final long[] stageNanos = new long[Stage.values().length];
+
+    public long candidates() { return candidates.sum(); }
+
+    public long distances() { return distances.sum(); }
+
+    public long nanos(Stage stage) { return stageNanos[stage.ordinal()]; }
+
+    void addScored(long scoredCandidates, long computedDistances) {
+        candidates.add(scoredCandidates);
+        distances.add(computedDistances);
+    }
+
+    /** Adds the time since {@code startNanos} to the stage and returns the current time. */
+    long endStage(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - startNanos;
+        return now;
+    }
+}
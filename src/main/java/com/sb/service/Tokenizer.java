@@ -0,0 +1,35 @@
+package com.sb.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits normalized text into tokens on every character that is not a letter or a digit.
+ */
+public class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokens(String normalizedText) {
+        List<String> tokens = new ArrayList<>();
+        if (normalizedText == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i < normalizedText.length(); i++) {
+            if (Character.isLetterOrDigit(normalizedText.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(normalizedText.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(normalizedText.substring(start));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,78 @@
+package com.sb.api;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(AccessLogFilter.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    private static void request(AccessLogFilter filter, int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/search");
+        request.setQueryString("q=secret");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        filter.doFilter(request, response, new MockFilterChain());
+    }
+
+    @Test
+    @DisplayName("should log sampled requests as structured fields without the query string")
+    void testSampled() throws Exception {
+        request(new AccessLogFilter(1.0), 200);
+
+        assertEquals(1, appender.list.size());
+        ILoggingEvent event = appender.list.get(0);
+        Map<String, Object> fields = event.getKeyValuePairs().stream()
+            .collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+        assertEquals("request", event.getMessage());
+        assertEquals("GET", fields.get("method"));
+        assertEquals("/api/search", fields.get("path"));
+        assertEquals(200, fields.get("status"));
+        assertTrue(fields.containsKey("durationMicros"));
+    }
+
+    @Test
+    @DisplayName("should skip unsampled requests but always log server errors")
+    void testUnsampled() throws Exception {
+        AccessLogFilter filter = new AccessLogFilter(0.0);
+        request(filter, 200);
+        request(filter, 404);
+        assertTrue(appender.list.isEmpty());
+
+        request(filter, 503);
+        assertEquals(1, appender.list.size());
+    }
+
+    @Test
+    @DisplayName("should reject sample rates outside 0 to 1")
+    void testInvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogFilter(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogFilter(-0.1));
+    }
+}
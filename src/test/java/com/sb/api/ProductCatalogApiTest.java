@@ -1,7 +1,17 @@
 package com.sb.api;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.sb.domain.BatchSearchResult;
+import com.sb.domain.BulkIngestResult;
 import com.sb.domain.Product;
+import com.sb.domain.ReloadStatus;
+import com.sb.domain.ProductFilter;
+import com.sb.domain.ProductPage;
+import com.sb.domain.SearchResult;
 import com.sb.service.ProductCatalogServiceInterface;
+import com.sb.service.ProductSort;
+import com.sb.service.SearchMode;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,12 +21,21 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -66,6 +85,22 @@ class ProductCatalogApiTest {
             .andExpect(jsonPath("$.name").value("Test Product"));
     }
 
+    @Test
+    @DisplayName("POST /api/products/bulk should stream the body to the service and return batch counts")
+    @WithMockUser
+    void testBulkAddProducts() throws Exception {
+        BulkIngestResult result = new BulkIngestResult(List.of(new BulkIngestResult.Batch(0, 2, 1)), 2, 1);
+        when(productCatalogService.bulkAddProducts(any(InputStream.class))).thenReturn(result);
+
+        mockMvc.perform(post("/api/products/bulk")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content("{\"name\": \"Laptop\"}\n")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.accepted").value(2))
+            .andExpect(jsonPath("$.batches[0].rejected").value(1));
+    }
+
     @Test
     @DisplayName("GET /api/products should return a list of products")
     @WithMockUser
@@ -81,6 +116,72 @@ class ProductCatalogApiTest {
             .andExpect(jsonPath("$[0].id").value("1"));
     }
 
+    @Test
+    @DisplayName("GET /api/products with after should return a cursor page and the next cursor header")
+    @WithMockUser
+    void testGetAllProducts_Cursor() throws Exception {
+        Product product = new Product();
+        product.setId("2");
+        product.setName("Test Product");
+        when(productCatalogService.getProductsAfter("1", 1)).thenReturn(new ProductPage(List.of(product), "2"));
+
+        mockMvc.perform(get("/api/products?after=1&size=1")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Next-Cursor", "2"))
+            .andExpect(jsonPath("$[0].id").value("2"));
+    }
+
+    @Test
+    @DisplayName("GET /api/products and /api/search should return only the requested fields")
+    @WithMockUser
+    void testFieldProjection() throws Exception {
+        Product product = new Product();
+        product.setId("1");
+        product.setName("Laptop");
+        product.setPrice(999.0);
+        product.setDescription("A long description");
+        when(productCatalogService.getProducts(0, 10)).thenReturn(List.of(product));
+        when(productCatalogService.searchProducts("lap", 10, SearchMode.SCAN, 2)).thenReturn(List.of(product));
+
+        mockMvc.perform(get("/api/products?fields=price,id")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(content().json("[{\"id\":\"1\",\"price\":999.0}]", true));
+        mockMvc.perform(get("/api/search?q=lap&fields=name")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(content().json("[{\"name\":\"Laptop\"}]", true));
+        mockMvc.perform(get("/api/products?fields=id,secret")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/products should answer in CBOR or Smile when asked to")
+    @WithMockUser
+    void testBinaryFormats() throws Exception {
+        Product product = new Product();
+        product.setId("1");
+        product.setName("Laptop");
+        when(productCatalogService.getProducts(0, 10)).thenReturn(List.of(product));
+
+        MvcResult cbor = mockMvc.perform(get("/api/products?fields=id,name")
+            .accept("application/cbor")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/cbor"))
+            .andReturn();
+        assertEquals("Laptop", new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray()).get(0).get("name").asText());
+
+        MvcResult smile = mockMvc.perform(get("/api/products")
+            .accept("application/x-jackson-smile")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andReturn();
+        assertEquals("1", new SmileMapper().readTree(smile.getResponse().getContentAsByteArray()).get(0).get("id").asText());
+    }
+
     @Test
     @DisplayName("GET /api/products/{id} should return a product")
     @WithMockUser
@@ -106,7 +207,7 @@ class ProductCatalogApiTest {
         product.setId("1");
         product.setName("Test Product");
 
-        when(productCatalogService.searchProducts("test")).thenReturn(List.of(product));
+        when(productCatalogService.searchProducts("test", 10, SearchMode.SCAN, 2)).thenReturn(List.of(product));
 
         mockMvc.perform(get("/api/search?q=test")
             .with(SecurityMockMvcRequestPostProcessors.jwt()))
@@ -114,6 +215,129 @@ class ProductCatalogApiTest {
             .andExpect(jsonPath("$[0].id").value("1"));
     }
 
+    @Test
+    @DisplayName("GET /api/search should pass the mode and edit budget to the service")
+    @WithMockUser
+    void testSearchProducts_AutomatonMode() throws Exception {
+        Product product = new Product();
+        product.setId("1");
+        product.setName("Laptop");
+
+        when(productCatalogService.searchProducts("laptp", 5, SearchMode.AUTOMATON, 1)).thenReturn(List.of(product));
+
+        mockMvc.perform(get("/api/search?q=laptp&limit=5&mode=automaton&maxEdits=1")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].name").value("Laptop"));
+    }
+
+    @Test
+    @DisplayName("GET /api/search/async should return the results with the partial flag")
+    @WithMockUser
+    void testSearchProductsAsync() throws Exception {
+        Product product = new Product();
+        product.setId("1");
+        product.setName("Laptop");
+
+        when(productCatalogService.searchProductsAsync("laptop", 10, SearchMode.SCAN, 2, Duration.ofMillis(50)))
+            .thenReturn(CompletableFuture.completedFuture(new SearchResult(List.of(product), true)));
+
+        MvcResult pending = mockMvc.perform(get("/api/search/async?q=laptop&timeoutMs=50")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending))
+            .andExpect(status().isOk())
+            .andExpect(header().string(ProductCatalogApi.PARTIAL_RESULTS_HEADER, "true"))
+            .andExpect(jsonPath("$[0].name").value("Laptop"));
+    }
+
+    @Test
+    @DisplayName("POST /api/search/batch should return results per query")
+    @WithMockUser
+    void testSearchProductsBatch() throws Exception {
+        Product product = new Product();
+        product.setId("1");
+        product.setName("Laptop");
+
+        when(productCatalogService.searchProductsBatch(List.of("laptop", "phone"), 5, SearchMode.SCAN, 2))
+            .thenReturn(List.of(new BatchSearchResult("laptop", List.of(product)), new BatchSearchResult("phone", List.of())));
+
+        mockMvc.perform(post("/api/search/batch?limit=5")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"laptop\", \"phone\"]")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].query").value("laptop"))
+            .andExpect(jsonPath("$[0].items[0].name").value("Laptop"))
+            .andExpect(jsonPath("$[1].items").isEmpty());
+    }
+
+    @Test
+    @DisplayName("POST /api/search/batch should reject filters and sorting instead of ignoring them")
+    @WithMockUser
+    void testSearchProductsBatch_UnsupportedParams() throws Exception {
+        for (String param : List.of("category=Electronics", "minPrice=10", "sort=price_asc", "fields=name")) {
+            mockMvc.perform(post("/api/search/batch?" + param)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"laptop\"]")
+                .with(SecurityMockMvcRequestPostProcessors.jwt()))
+                .andExpect(status().isBadRequest());
+        }
+        verify(productCatalogService, never()).searchProductsBatch(any(), anyInt(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/suggest should return completions, capping the limit")
+    @WithMockUser
+    void testSuggest() throws Exception {
+        when(productCatalogService.suggest("lap", 10)).thenReturn(List.of("laptop", "lapdesk"));
+
+        mockMvc.perform(get("/api/suggest?prefix=lap&limit=50")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0]").value("laptop"))
+            .andExpect(jsonPath("$[1]").value("lapdesk"));
+    }
+
+    @Test
+    @DisplayName("GET /api/products and /api/search should pass the filter and sort to the service")
+    @WithMockUser
+    void testFilteredProductsAndSearch() throws Exception {
+        Product product = new Product();
+        product.setId("1");
+        product.setName("Laptop");
+        ProductFilter filter = new ProductFilter("Electronics", 100.0, 2000.0);
+
+        when(productCatalogService.getProducts(0, 10, filter, ProductSort.PRICE_ASC)).thenReturn(List.of(product));
+        when(productCatalogService.searchProducts("lap", 10, SearchMode.SCAN, 2, filter, ProductSort.DEFAULT)).thenReturn(List.of(product));
+
+        mockMvc.perform(get("/api/products?category=Electronics&minPrice=100&maxPrice=2000&sort=price_asc")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value("1"));
+        mockMvc.perform(get("/api/search?q=lap&category=Electronics&minPrice=100&maxPrice=2000")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value("1"));
+        mockMvc.perform(get("/api/products?minPrice=10&maxPrice=5")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/products?after=&sort=price_desc")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/search should reject an unknown mode")
+    @WithMockUser
+    void testSearchProducts_UnknownMode() throws Exception {
+        mockMvc.perform(get("/api/search?q=test&mode=magic")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("POST /api/products/prepopulate should reload products")
     @WithMockUser
@@ -123,4 +347,24 @@ class ProductCatalogApiTest {
             .andExpect(status().isOk())
             .andExpect(content().string("Product data reloaded from JSON."));
     }
+
+    @Test
+    @DisplayName("POST /api/products/prepopulate?async=true should return 202 with the reload job")
+    @WithMockUser
+    void testPrepopulateProducts_Async() throws Exception {
+        ReloadStatus status = new ReloadStatus("job-1", ReloadStatus.State.RUNNING, 0, 0, Instant.now(), null, null);
+        when(productCatalogService.reloadProducts()).thenReturn(status);
+        when(productCatalogService.getReloadStatus("job-1")).thenReturn(status);
+
+        mockMvc.perform(post("/api/products/prepopulate?async=true")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Location", "/api/products/prepopulate/job-1"))
+            .andExpect(jsonPath("$.state").value("RUNNING"));
+
+        mockMvc.perform(get("/api/products/prepopulate/job-1")
+            .with(SecurityMockMvcRequestPostProcessors.jwt()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value("job-1"));
+    }
 }
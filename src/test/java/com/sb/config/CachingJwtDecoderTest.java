@@ -0,0 +1,102 @@
+package com.sb.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingJwtDecoderTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+    private static final OAuth2TokenValidator<Jwt> ACCEPT = jwt -> OAuth2TokenValidatorResult.success();
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token).header("alg", "HS256").subject("t").expiresAt(expiresAt).build();
+    }
+
+    @Test
+    @DisplayName("decode should verify a token once and serve it from the cache until it expires")
+    void testCachedUntilExpiry() {
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        Clock clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW, NOW.plusSeconds(30), NOW.plusSeconds(60));
+        Jwt jwt = jwt("a", NOW.plusSeconds(60));
+        when(delegate.decode("a")).thenReturn(jwt);
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, ACCEPT, 10, clock);
+
+        assertSame(jwt, decoder.decode("a"));
+        assertSame(jwt, decoder.decode("a"));
+        verify(delegate, times(1)).decode("a");
+
+        decoder.decode("a");
+        verify(delegate, times(2)).decode("a");
+    }
+
+    @Test
+    @DisplayName("decode should evict the token expiring soonest and never cache rejected tokens")
+    void testBoundedAndRejected() {
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        when(delegate.decode("a")).thenReturn(jwt("a", NOW.plusSeconds(120)));
+        when(delegate.decode("b")).thenReturn(jwt("b", NOW.plusSeconds(60)));
+        when(delegate.decode("c")).thenReturn(jwt("c", NOW.plusSeconds(90)));
+        when(delegate.decode("bad")).thenThrow(new BadJwtException("bad"));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, ACCEPT, 2, clock);
+
+        decoder.decode("a");
+        decoder.decode("b");
+        decoder.decode("a");
+        decoder.decode("c");
+        assertEquals(2, decoder.size());
+        decoder.decode("a");
+        decoder.decode("b");
+        verify(delegate, times(1)).decode("a");
+        verify(delegate, times(2)).decode("b");
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("bad"));
+        verify(delegate, times(2)).decode("bad");
+    }
+
+    @Test
+    @DisplayName("decode should re-run the claim validator on a hit and hand rejected tokens back to the delegate")
+    void testRevalidatedOnHit() {
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        @SuppressWarnings("unchecked")
+        OAuth2TokenValidator<Jwt> validator = mock(OAuth2TokenValidator.class);
+        Jwt jwt = jwt("a", NOW.plusSeconds(120));
+        when(delegate.decode("a")).thenReturn(jwt).thenThrow(new BadJwtException("revoked issuer"));
+        when(validator.validate(jwt)).thenReturn(OAuth2TokenValidatorResult.success(),
+            OAuth2TokenValidatorResult.failure(new OAuth2Error("invalid_token")));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, validator, 10, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        decoder.decode("a");
+        assertSame(jwt, decoder.decode("a"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("a"));
+        assertEquals(0, decoder.size());
+        verify(delegate, times(2)).decode("a");
+    }
+
+    @Test
+    @DisplayName("decode should key tokens by their UTF-8 bytes")
+    void testNonAsciiTokens() {
+        JwtDecoder delegate = mock(JwtDecoder.class);
+        when(delegate.decode(anyString())).thenAnswer(call -> jwt(call.getArgument(0), NOW.plusSeconds(60)));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, ACCEPT, 10, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertEquals("é", decoder.decode("é").getTokenValue());
+        assertEquals("è", decoder.decode("è").getTokenValue());
+        assertEquals(2, decoder.size());
+    }
+}
@@ -0,0 +1,55 @@
+package com.sb.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class SecurityConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("a Prometheus scrape should succeed with the client credentials")
+    void testPrometheusScrape() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("test-client", "test-secret")))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("jvm_memory_used_bytes")));
+    }
+
+    @Test
+    @DisplayName("a Prometheus scrape should be refused without valid credentials")
+    void testPrometheusScrapeNeedsCredentials() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").with(httpBasic("test-client", "wrong")))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("health should succeed without credentials")
+    void testHealth() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("the API should still require credentials")
+    void testApiNeedsCredentials() throws Exception {
+        mockMvc.perform(get("/api/products"))
+            .andExpect(status().isUnauthorized());
+    }
+}
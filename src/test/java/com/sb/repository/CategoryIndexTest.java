@@ -0,0 +1,41 @@
+package com.sb.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryIndexTest {
+
+    @Test
+    @DisplayName("ordinals should list a category's ordinals below the bound, ignoring case")
+    void testOrdinals() {
+        CategoryIndex index = new CategoryIndex();
+        for (int i = 0; i < 200; i++) {
+            index.add(i, i % 3 == 0 ? "Electronics" : "Kitchen");
+        }
+        index.add(200, null);
+
+        int[] electronics = index.ordinals(" electronics", 130);
+        assertEquals(44, electronics.length);
+        assertEquals(0, electronics[0]);
+        assertEquals(129, electronics[43]);
+        assertEquals(133, index.ordinals("KITCHEN", 201).length);
+        assertEquals(0, index.ordinals("Garden", 201).length);
+        assertEquals(2, index.categoryCount());
+    }
+
+    @Test
+    @DisplayName("contains should test membership from the bitmap")
+    void testContains() {
+        CategoryIndex index = new CategoryIndex();
+        index.add(3, "Books");
+        index.add(70, "Books");
+
+        long[] books = index.bits("books");
+        assertTrue(CategoryIndex.contains(books, 3));
+        assertTrue(CategoryIndex.contains(books, 70));
+        assertFalse(CategoryIndex.contains(books, 4));
+        assertFalse(CategoryIndex.contains(books, 1000));
+    }
+}
@@ -0,0 +1,114 @@
+package com.sb.repository;
+
+import com.sb.domain.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarProductStorageTest {
+
+    private static final CatalogIndexSettings COLUMNAR = CatalogIndexSettings.of(3, new String[] { "name" }, 2, 10_000, "columnar");
+
+    private ProductCatalogRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ProductCatalogRepositoryImpl(COLUMNAR);
+    }
+
+    private static Product product(String name, String category, String description, double price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setImageUrl(name != null ? name.toLowerCase() + ".jpg" : null);
+        return product;
+    }
+
+    @Test
+    @DisplayName("products should read back field by field, including nulls and non-ASCII text")
+    void testRoundTrip() {
+        Product laptop = repository.save(product("Laptop", "Electronics", "Schnell und leicht – 1,2 kg", 1500.0));
+        Product unnamed = repository.save(product(null, null, null, 0));
+
+        Product found = repository.findById(laptop.getId()).orElseThrow();
+        assertNotSame(laptop, found);
+        assertEquals(laptop.getId(), found.getId());
+        assertEquals("Laptop", found.getName());
+        assertEquals("Electronics", found.getCategory());
+        assertEquals("Schnell und leicht – 1,2 kg", found.getDescription());
+        assertEquals(1500.0, found.getPrice());
+        assertEquals("laptop.jpg", found.getImageUrl());
+
+        Product empty = repository.findById(unnamed.getId()).orElseThrow();
+        assertNull(empty.getName());
+        assertNull(empty.getCategory());
+        assertNull(empty.getDescription());
+        assertNull(empty.getImageUrl());
+        assertEquals("", repository.snapshot().searchName(1).toString());
+    }
+
+    @Test
+    @DisplayName("ids should map to ordinals across table growth, and unknown or malformed ids should not")
+    void testIdLookup() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            products.add(product("Product " + i, "Category " + (i % 7), "Description " + i, i));
+        }
+        repository.saveAll(products);
+
+        for (int i = 0; i < 500; i += 37) {
+            Product found = repository.findById(products.get(i).getId()).orElseThrow();
+            assertEquals("Product " + i, found.getName());
+            assertEquals("Category " + (i % 7), found.getCategory());
+        }
+        assertTrue(repository.findById(UUID.randomUUID().toString()).isEmpty());
+        assertTrue(repository.findById("1-1-1-1-1").isEmpty());
+        assertTrue(repository.findById("not-a-uuid").isEmpty());
+        assertEquals("Product 11", repository.findAfter(products.get(10).getId(), 1).get(0).getName());
+    }
+
+    @Test
+    @DisplayName("search names should be lowercased views over the arena that snapshots keep stable")
+    void testSearchNamesAndSnapshots() {
+        repository.save(product("Coffee Maker", "Kitchen", null, 85.0));
+        CatalogSnapshot before = repository.snapshot();
+        for (int i = 0; i < 100; i++) {
+            repository.save(product("Grinder " + i, "Kitchen", null, 20.0));
+        }
+
+        assertEquals(1, before.size());
+        assertEquals("coffee maker", before.searchName(0).toString());
+        assertEquals('m', before.searchName(0).charAt(7));
+        assertEquals("grinder 99", repository.snapshot().searchName(100).toString());
+        assertEquals(1, repository.snapshot().findByNameWithin("coffee maker", 0).size());
+    }
+
+    @Test
+    @DisplayName("search names outside Latin-1 should read back from the arena next to one-byte names")
+    void testWideSearchNames() {
+        repository.save(product("Ωmega Watch", "Accessories", null, 300.0));
+        repository.save(product("Crème Brûlée Torch", "Kitchen", null, 25.0));
+
+        CatalogSnapshot catalog = repository.snapshot();
+        assertEquals("ωmega watch", catalog.searchName(0).toString());
+        assertEquals('ω', catalog.searchName(0).charAt(0));
+        assertEquals("creme brulee torch", catalog.searchName(1).toString());
+        assertEquals("Ωmega Watch", catalog.product(0).getName());
+        assertEquals(1, catalog.findByNameWithin("ωmega watch", 0).size());
+    }
+
+    @Test
+    @DisplayName("an unknown layout should be rejected")
+    void testUnknownLayout() {
+        assertThrows(IllegalArgumentException.class,
+            () -> CatalogIndexSettings.of(3, new String[] { "name" }, 2, 10_000, "rows"));
+    }
+}
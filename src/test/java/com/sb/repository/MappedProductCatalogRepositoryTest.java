@@ -0,0 +1,294 @@
+package com.sb.repository;
+
+import com.sb.domain.Product;
+import com.sb.domain.ProductFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the whole repository suite against the mapped store, plus restart and recovery cases.
+ */
+class MappedProductCatalogRepositoryTest extends ProductCatalogRepositoryImplTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<MappedProductCatalogRepository> opened = new ArrayList<>();
+
+    @Override
+    protected ProductCatalogRepositoryInterface newRepository(CatalogIndexSettings settings) {
+        return open(directory.resolve("store-" + opened.size()), settings);
+    }
+
+    private MappedProductCatalogRepository open(Path store, CatalogIndexSettings settings) {
+        return open(store, settings, MappedProductCatalogRepository.MAX_MAPPED_BYTES);
+    }
+
+    private MappedProductCatalogRepository open(Path store, CatalogIndexSettings settings, long maxMappedBytes) {
+        MappedProductCatalogRepository repository = new MappedProductCatalogRepository(store, settings, maxMappedBytes);
+        opened.add(repository);
+        return repository;
+    }
+
+    @AfterEach
+    void closeAll() throws IOException {
+        for (MappedProductCatalogRepository repository : opened) {
+            repository.close();
+        }
+    }
+
+    private static Product product(String name, String description) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Electronics");
+        product.setDescription(description);
+        product.setPrice(10.5);
+        product.setImageUrl(name.toLowerCase() + ".jpg");
+        return product;
+    }
+
+    @Test
+    @DisplayName("a reopened store should have the saved products, ids and indices")
+    void testReopen() throws IOException {
+        Path store = directory.resolve("reopen");
+        MappedProductCatalogRepository first = open(store, CatalogIndexSettings.DEFAULTS);
+        first.saveAll(List.of(product("Laptop", "High-performance laptop"), product("Smartphone", null)));
+        Product stand = first.save(product("Laptop Stand", "Aluminium stand"));
+        first.close();
+
+        MappedProductCatalogRepository second = open(store, CatalogIndexSettings.DEFAULTS);
+        List<Product> products = second.findAll();
+        assertEquals(List.of("Laptop", "Smartphone", "Laptop Stand"), products.stream().map(Product::getName).toList());
+        assertEquals("High-performance laptop", products.get(0).getDescription());
+        assertSame(products.get(0).getDescription(), products.get(0).getDescription());
+        assertNull(products.get(1).getDescription());
+        assertEquals("laptop.jpg", products.get(0).getImageUrl());
+        assertEquals(10.5, products.get(0).getPrice());
+        assertEquals("Electronics", products.get(0).getCategory());
+        assertEquals("Laptop Stand", second.findById(stand.getId()).orElseThrow().getName());
+        assertEquals(1, second.snapshot().findByNameWithin("laptop", 0).size());
+
+        second.save(product("Mouse", "Wireless mouse"));
+        second.close();
+        assertEquals(4, open(store, CatalogIndexSettings.DEFAULTS).findAll().size());
+    }
+
+    @Test
+    @DisplayName("a reopened store should reflect clear and swap-in")
+    void testReopenAfterClearAndSwapIn() throws IOException {
+        Path store = directory.resolve("swap");
+        MappedProductCatalogRepository first = open(store, CatalogIndexSettings.DEFAULTS);
+        first.save(product("Laptop", "Old"));
+        first.clear();
+        first.save(product("Camera", "Cleared"));
+        CatalogBuild build = first.startBuild();
+        build.saveAll(List.of(product("Keyboard", "Mechanical"), product("Monitor", "4K")));
+        first.save(product("Mouse", "Saved during the build"));
+        first.swapIn(build);
+        first.close();
+
+        List<Product> products = open(store, CatalogIndexSettings.DEFAULTS).findAll();
+        assertEquals(List.of("Keyboard", "Monitor", "Mouse"), products.stream().map(Product::getName).toList());
+    }
+
+    @Test
+    @DisplayName("a torn record at the end of the log should be dropped on reopen")
+    void testTornLogRecord() throws IOException {
+        Path store = directory.resolve("torn");
+        MappedProductCatalogRepository first = open(store, CatalogIndexSettings.DEFAULTS);
+        first.save(product("Laptop", "Kept"));
+        first.close();
+        try (FileChannel log = FileChannel.open(store.resolve(MappedProductCatalogRepository.LOG_FILE),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.allocate(8).putInt(100).putInt(7).flip());
+        }
+
+        MappedProductCatalogRepository second = open(store, CatalogIndexSettings.DEFAULTS);
+        assertEquals(List.of("Laptop"), second.findAll().stream().map(Product::getName).toList());
+        second.save(product("Mouse", "After recovery"));
+        second.close();
+        assertEquals(2, open(store, CatalogIndexSettings.DEFAULTS).findAll().size());
+    }
+
+    @Test
+    @DisplayName("a log left over from an older segment should be ignored")
+    void testStaleLog() throws IOException {
+        Path store = directory.resolve("stale");
+        MappedProductCatalogRepository first = open(store, CatalogIndexSettings.DEFAULTS);
+        first.save(product("Laptop", "In the segment after reopen"));
+        first.close();
+        Path log = store.resolve(MappedProductCatalogRepository.LOG_FILE);
+        byte[] staleLog = Files.readAllBytes(log);
+
+        // reopening compacts the log into the segment; putting the old log back mimics a crash in between
+        open(store, CatalogIndexSettings.DEFAULTS).close();
+        Files.write(log, staleLog);
+
+        assertEquals(1, open(store, CatalogIndexSettings.DEFAULTS).findAll().size());
+    }
+
+    @Test
+    @DisplayName("products read from a replaced segment should keep their mapped fields")
+    void testSwapInDetachesMappedProducts() throws IOException {
+        Path store = directory.resolve("detach");
+        MappedProductCatalogRepository first = open(store, CatalogIndexSettings.DEFAULTS);
+        first.save(product("Laptop", "High-performance laptop"));
+        first.close();
+
+        MappedProductCatalogRepository second = open(store, CatalogIndexSettings.DEFAULTS);
+        Product laptop = second.findAll().get(0);
+        CatalogBuild build = second.startBuild();
+        build.saveAll(List.of(product("Keyboard", "Mechanical")));
+        second.swapIn(build);
+
+        assertEquals("High-performance laptop", laptop.getDescription());
+        assertEquals("laptop.jpg", laptop.getImageUrl());
+    }
+
+    @Test
+    @DisplayName("a catalog too large for one mapping should fail to save and leave the store intact")
+    void testMappingLimit() throws IOException {
+        Path store = directory.resolve("limit");
+        MappedProductCatalogRepository first = open(store, CatalogIndexSettings.DEFAULTS, 400);
+        first.save(product("Laptop", "Fits"));
+        UncheckedIOException error = assertThrows(UncheckedIOException.class, () -> {
+            for (int i = 0; i < 20; i++) {
+                first.save(product("Laptop " + i, "x".repeat(60)));
+            }
+        });
+        assertTrue(error.getCause().getMessage().contains("single mapping"), error.getCause().getMessage());
+        int saved = first.findAll().size();
+        first.close();
+
+        assertEquals(saved, open(store, CatalogIndexSettings.DEFAULTS, 400).findAll().size());
+    }
+
+    private static List<Product> randomProducts(int count, long seed) {
+        String[] words = { "laptop", "stand", "mouse", "wireless", "keyboard", "monitor", "usb", "cable", "lamp", "desk" };
+        String[] categories = { "Electronics", "Office", "Home", null };
+        Random random = new Random(seed);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + random.nextInt(50);
+            Product product = product(name, "Item " + i + (random.nextBoolean() ? " with caf\u00e9 finish" : ""));
+            product.setCategory(categories[random.nextInt(categories.length)]);
+            product.setPrice(random.nextInt(10_000) / 100.0);
+            products.add(product);
+        }
+        return products;
+    }
+
+    // what the snapshot's products and every index answer, by id
+    private static List<String> answers(CatalogSnapshot snapshot) {
+        List<String> answers = new ArrayList<>();
+        for (Product product : snapshot.products()) {
+            answers.add(String.join("|", product.getId(), product.getName(), product.getCategory(),
+                product.getDescription(), product.getImageUrl(), Double.toString(product.getPrice())));
+        }
+        for (String query : List.of("laptop stand 7", "wireles mouse", "lamp")) {
+            answers.add(ids(snapshot.findByNameWithin(query, 2)));
+            answers.add(ids(snapshot.findNearestByName(query, 5)));
+            answers.add(ids(snapshot.findByNameAutomaton(query, 1)));
+            answers.add(Arrays.toString(snapshot.searchCandidates(query)));
+        }
+        answers.add(snapshot.suggest("la", 5) + " " + snapshot.suggest("1", 10) + " " + snapshot.suggest("4", 10));
+        answers.add(Arrays.toString(snapshot.filter(new ProductFilter("office", 5.0, 50.0))));
+        answers.add(Arrays.toString(snapshot.sortedByPrice(ProductFilter.NONE, true)));
+        for (int ordinal = 0; ordinal < snapshot.size(); ordinal++) {
+            StringBuilder tokens = new StringBuilder(snapshot.searchName(ordinal));
+            for (int i = snapshot.nameTokensStart(ordinal); i < snapshot.nameTokensEnd(ordinal); i++) {
+                tokens.append(' ').append(snapshot.token(snapshot.nameToken(i)));
+            }
+            answers.add(tokens.toString());
+        }
+        return answers;
+    }
+
+    private static String ids(List<NameMatch> matches) {
+        return matches.stream().map(match -> match.product().getId() + ":" + match.distance()).toList().toString();
+    }
+
+    // backdates the file, so that it is still old after a reopen only if the reopen did not rewrite it
+    private static void backdate(Path path) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(0));
+    }
+
+    private static boolean rewritten(Path path) throws IOException {
+        return Files.getLastModifiedTime(path).toMillis() != 0;
+    }
+
+    @Test
+    @DisplayName("a reopened store should read its indices back and answer as if it had rebuilt them")
+    void testIndexRestored() throws IOException {
+        for (String layout : List.of("objects", "columnar")) {
+            CatalogIndexSettings settings = CatalogIndexSettings.of(3, new String[] { "name", "description", "category" }, 2, 0, layout);
+            Path store = directory.resolve("index-" + layout);
+            Path index = store.resolve(MappedProductCatalogRepository.INDEX_FILE);
+            MappedProductCatalogRepository first = open(store, settings);
+            first.saveAll(randomProducts(3000, 5));
+            first.close();
+            // reopening folds the log into a new segment and writes its index
+            MappedProductCatalogRepository compacted = open(store, settings);
+            List<String> written = answers(compacted.snapshot());
+            compacted.close();
+            backdate(index);
+
+            MappedProductCatalogRepository restored = open(store, settings);
+            assertFalse(rewritten(index), layout + " index was rebuilt rather than read");
+            assertEquals(written, answers(restored.snapshot()), layout);
+            // a restored generation keeps indexing new products
+            restored.saveAll(randomProducts(200, 6));
+            List<String> fromIndex = answers(restored.snapshot());
+            restored.close();
+
+            Files.delete(index);
+            MappedProductCatalogRepository rebuilt = open(store, settings);
+            assertEquals(answers(rebuilt.snapshot()), fromIndex, layout);
+            assertTrue(Files.exists(index));
+        }
+    }
+
+    @Test
+    @DisplayName("an unreadable or stale index should be rebuilt and written again")
+    void testIndexRebuilt() throws IOException {
+        Path store = directory.resolve("rebuilt");
+        Path index = store.resolve(MappedProductCatalogRepository.INDEX_FILE);
+        MappedProductCatalogRepository first = open(store, CatalogIndexSettings.DEFAULTS);
+        first.saveAll(randomProducts(500, 7));
+        first.close();
+        open(store, CatalogIndexSettings.DEFAULTS).close();
+        List<String> expected = answers(open(store, CatalogIndexSettings.DEFAULTS).snapshot());
+
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        backdate(index);
+        assertEquals(expected, answers(open(store, CatalogIndexSettings.DEFAULTS).snapshot()));
+        assertTrue(rewritten(index));
+        backdate(index);
+        assertEquals(expected, answers(open(store, CatalogIndexSettings.DEFAULTS).snapshot()));
+        assertFalse(rewritten(index));
+
+        // other gram settings build other indices
+        CatalogIndexSettings descriptions = CatalogIndexSettings.of(3, new String[] { "name", "description" }, 2, 10_000);
+        open(store, descriptions);
+        assertTrue(rewritten(index));
+    }
+}
@@ -0,0 +1,51 @@
+package com.sb.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NGramIndexTest {
+
+    private static NGramIndex index(String... names) {
+        NGramIndex index = new NGramIndex(3);
+        for (int i = 0; i < names.length; i++) {
+            index.add(i, names[i]);
+        }
+        return index;
+    }
+
+    @Test
+    @DisplayName("candidates should keep names sharing enough n-grams, in ordinal order")
+    void testCandidates() {
+        NGramIndex index = index("laptop", "smartphone", "laptop stand", "coffee maker", "lapdog");
+
+        assertArrayEquals(new int[] { 0, 2 }, index.candidates("laptop", 0, 5));
+        assertArrayEquals(new int[] { 0, 2, 4 }, index.candidates("laptop", 1, 5));
+        assertArrayEquals(new int[] { 3 }, index.candidates("coffe makr", 2, 5));
+    }
+
+    @Test
+    @DisplayName("candidates should ignore ordinals at or above the bound")
+    void testUpperBound() {
+        NGramIndex index = index("laptop", "laptop stand", "laptops");
+
+        assertArrayEquals(new int[] { 0, 1 }, index.candidates("laptop", 0, 2));
+    }
+
+    @Test
+    @DisplayName("candidates should return null for queries shorter than n")
+    void testShortQuery() {
+        assertNull(index("laptop").candidates("la", 0, 1));
+    }
+
+    @Test
+    @DisplayName("candidates should keep every name within the edit budget")
+    void testNoFalseNegatives() {
+        String[] names = { "wireless headphones", "gaming mouse", "coffee maker", "smartwatch", "bluetooth speaker" };
+        NGramIndex index = index(names);
+
+        assertArrayEquals(new int[] { 0 }, index.candidates("wirelss headphnes", 2, names.length));
+        assertArrayEquals(new int[] { 1 }, index.candidates("gmaing mouse", 1, names.length));
+    }
+}
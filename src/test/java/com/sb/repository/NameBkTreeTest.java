@@ -0,0 +1,170 @@
+package com.sb.repository;
+
+import com.sb.service.Search;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameBkTreeTest {
+
+    private static List<String> randomNames(int size, long seed) {
+        Random random = new Random(seed);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = 5 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                name.append((char) ('a' + random.nextInt(26)));
+            }
+            names.add(name.toString());
+        }
+        return names;
+    }
+
+    private static NameBkTree index(List<String> names) {
+        NameBkTree tree = new NameBkTree();
+        for (int i = 0; i < names.size(); i++) {
+            tree.add(i, names::get);
+        }
+        return tree;
+    }
+
+    private static int distance(long match) { return (int) (match >>> 32); }
+
+    private static int ordinal(long match) { return (int) match; }
+
+    @Test
+    @DisplayName("findWithin should return every name within the radius, nearest first")
+    void testFindWithin() {
+        List<String> names = List.of("laptops", "laptop", "lapdog", "smartphone");
+        NameBkTree tree = index(names);
+
+        long[] matches = tree.findWithin("laptop", 1, 4, names::get);
+
+        assertEquals(2, matches.length);
+        assertEquals(1, ordinal(matches[0]));
+        assertEquals(0, distance(matches[0]));
+        assertEquals(0, ordinal(matches[1]));
+        assertEquals(1, distance(matches[1]));
+    }
+
+    @Test
+    @DisplayName("should find names that only a transposed pair edited again keeps within the radius")
+    void testTranspositionDoesNotBreakPruning() {
+        // "ac" is 1 edit from both, yet "ca" to "abc" is 3 by alignment: an alignment-keyed tree prunes "abc"
+        List<String> names = List.of("ca", "abc");
+        NameBkTree tree = index(names);
+
+        long[] within = tree.findWithin("ac", 1, 2, names::get);
+        long[] nearest = tree.findNearest("ac", 1, 2, ordinal -> ordinal == 1, names::get);
+
+        assertEquals(2, within.length);
+        assertEquals(1, ordinal(nearest[0]));
+        assertEquals(1, distance(nearest[0]));
+    }
+
+    @Test
+    @DisplayName("duplicate names should share a node but return every ordinal")
+    void testDuplicateNames() {
+        List<String> names = List.of("mouse", "mouse", "house");
+        NameBkTree tree = index(names);
+
+        assertEquals(2, tree.nodeCount());
+        assertEquals(3, tree.findWithin("mouse", 1, 3, names::get).length);
+    }
+
+    @Test
+    @DisplayName("queries should ignore ordinals at or above the bound")
+    void testUpperBound() {
+        List<String> names = List.of("mouse", "house", "mouse");
+        NameBkTree tree = index(names);
+
+        assertEquals(2, tree.findWithin("mouse", 1, 2, names::get).length);
+        assertEquals(0, ordinal(tree.findNearest("mouse", 1, 1, names::get)[0]));
+        assertEquals(0, tree.findNearest("mouse", 3, 0, names::get).length);
+    }
+
+    @Test
+    @DisplayName("findWithin and findNearest should agree with a brute force scan")
+    void testAgreesWithBruteForce() {
+        List<String> names = randomNames(3000, 11);
+        NameBkTree tree = index(names);
+        Random random = new Random(5);
+
+        for (int n = 0; n < 50; n++) {
+            String query = names.get(random.nextInt(names.size())).substring(1);
+            Search.Distance exact = Search.compile(query);
+
+            List<Integer> expectedWithin = names.stream()
+                .map(name -> exact.to(name, Integer.MAX_VALUE))
+                .filter(d -> d <= 2)
+                .sorted()
+                .collect(Collectors.toList());
+            List<Integer> actualWithin = Arrays.stream(tree.findWithin(query, 2, names.size(), names::get))
+                .mapToObj(NameBkTreeTest::distance)
+                .collect(Collectors.toList());
+            assertEquals(expectedWithin, actualWithin);
+
+            List<Integer> expectedNearest = names.stream()
+                .map(name -> exact.to(name, Integer.MAX_VALUE))
+                .sorted()
+                .limit(5)
+                .collect(Collectors.toList());
+            List<Integer> actualNearest = Arrays.stream(tree.findNearest(query, 5, names.size(), names::get))
+                .mapToObj(NameBkTreeTest::distance)
+                .collect(Collectors.toList());
+            assertEquals(expectedNearest, actualNearest);
+        }
+    }
+
+    @Test
+    @DisplayName("BK-tree radius queries should visit a fraction of the nodes a full scan touches")
+    void testVisitRatio() {
+        List<String> names = randomNames(20000, 3);
+        NameBkTree tree = index(names);
+        Random random = new Random(9);
+
+        int[] visited = new int[1];
+        int queries = 100;
+        for (int n = 0; n < queries; n++) {
+            tree.findWithin(names.get(random.nextInt(names.size())), 1, names.size(), names::get, visited);
+        }
+
+        // the Levenshtein keys prune with twice the radius, so this is a within(2) walk of the tree
+        double ratio = visited[0] / ((double) tree.nodeCount() * queries);
+        assertTrue(ratio < 0.5, "within(1) visit ratio " + ratio);
+    }
+
+    @Test
+    @DisplayName("BK-tree nearest queries should prune once the k nearest names are close")
+    void testNearestVisitRatio() {
+        // near-duplicate names, as in a catalog of product variants
+        List<String> bases = randomNames(2000, 4);
+        Random random = new Random(12);
+        List<String> names = new ArrayList<>();
+        for (final String base : bases) {
+            for (int v = 0; v < 10; v++) {
+                char[] name = base.toCharArray();
+                name[random.nextInt(name.length)] = (char) ('a' + random.nextInt(26));
+                names.add(new String(name));
+            }
+        }
+        NameBkTree tree = index(names);
+
+        int[] visited = new int[1];
+        int queries = 100;
+        for (int n = 0; n < queries; n++) {
+            tree.findNearest(bases.get(random.nextInt(bases.size())), 10, names.size(), names::get, visited);
+        }
+
+        double ratio = visited[0] / ((double) tree.nodeCount() * queries);
+        assertTrue(ratio < 0.65, "nearest(10) visit ratio " + ratio);
+    }
+}
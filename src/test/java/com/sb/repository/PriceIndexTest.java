@@ -0,0 +1,55 @@
+package com.sb.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceIndexTest {
+
+    @Test
+    @DisplayName("range should return the ordinals in the price range by price, then ordinal")
+    void testRange() {
+        PriceIndex index = new PriceIndex();
+        double[] prices = { 30.0, 10.0, 20.0, 10.0, 50.0 };
+        for (int i = 0; i < prices.length; i++) {
+            index.add(i, prices[i]);
+        }
+
+        assertArrayEquals(new int[] { 1, 3, 2, 0 }, index.range(10.0, 30.0, 5, ordinal -> true));
+        assertArrayEquals(new int[] { 1, 2, 0 }, index.range(10.0, 30.0, 3, ordinal -> true));
+        assertArrayEquals(new int[] { 3, 0 }, index.range(10.0, 30.0, 5, ordinal -> ordinal % 3 == 0));
+        assertArrayEquals(new int[0], index.range(60.0, 70.0, 5, ordinal -> true));
+    }
+
+    @Test
+    @DisplayName("range should match a brute force sort across folds of the tail")
+    void testAgreesWithBruteForce() {
+        Random random = new Random(17);
+        PriceIndex index = new PriceIndex();
+        double[] prices = new double[20_000];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = random.nextInt(500) / 4.0;
+            index.add(i, prices[i]);
+            if (i % 257 == 0) {
+                index.fold();
+            }
+            if (i % 3_001 == 0 || i == prices.length - 1) {
+                int upTo = random.nextInt(i + 1) + 1;
+                double min = random.nextInt(300) / 4.0;
+                double max = min + random.nextInt(100);
+                int[] expected = IntStream.range(0, upTo)
+                    .filter(ordinal -> prices[ordinal] >= min && prices[ordinal] <= max)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble((Integer ordinal) -> prices[ordinal]).thenComparingInt(ordinal -> ordinal))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+                assertArrayEquals(expected, index.range(min, max, upTo, ordinal -> true), "after " + i);
+            }
+        }
+    }
+}
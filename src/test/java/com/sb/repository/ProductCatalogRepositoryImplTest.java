@@ -12,11 +12,15 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class ProductCatalogRepositoryImplTest {
 
-    private ProductCatalogRepositoryImpl repository;
+    protected ProductCatalogRepositoryInterface repository;
+
+    protected ProductCatalogRepositoryInterface newRepository(CatalogIndexSettings settings) {
+        return new ProductCatalogRepositoryImpl(settings);
+    }
 
     @BeforeEach
     void setUp() {
-        repository = new ProductCatalogRepositoryImpl();
+        repository = newRepository(CatalogIndexSettings.DEFAULTS);
     }
 
     @Test
@@ -104,4 +108,219 @@ class ProductCatalogRepositoryImplTest {
         assertEquals(2, products.size());
         assertTrue(products.stream().allMatch(p -> p.getId() != null));
     }
+
+    @Test
+    @DisplayName("name index should follow save, saveAll and clear")
+    void testNameIndex() {
+        Product product1 = new Product();
+        product1.setName("Laptop");
+        repository.save(product1);
+
+        Product product2 = new Product();
+        product2.setName("Lapdog");
+        Product product3 = new Product();
+        product3.setName("Smartphone");
+        repository.saveAll(List.of(product2, product3));
+
+        List<NameMatch> within = repository.snapshot().findByNameWithin("laptop", 2);
+        assertEquals(2, within.size());
+        assertEquals(product1.getId(), within.get(0).product().getId());
+
+        List<NameMatch> nearest = repository.snapshot().findNearestByName("smartfone", 1);
+        assertEquals(product3.getId(), nearest.get(0).product().getId());
+
+        List<NameMatch> automaton = repository.snapshot().findByNameAutomaton("laptp", 2);
+        assertEquals(1, automaton.size());
+        assertEquals(product1.getId(), automaton.get(0).product().getId());
+        assertEquals(1, automaton.get(0).distance());
+
+        repository.clear();
+
+        assertTrue(repository.snapshot().findByNameWithin("laptop", 2).isEmpty());
+        assertTrue(repository.snapshot().findByNameAutomaton("laptop", 2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("findAll should return products in insertion order")
+    void testFindAll_InsertionOrder() {
+        for (int i = 0; i < 50; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            repository.save(product);
+        }
+
+        List<Product> products = repository.findAll();
+        for (int i = 0; i < 50; i++) {
+            assertEquals("Product " + i, products.get(i).getName());
+        }
+    }
+
+    @Test
+    @DisplayName("searchCandidates should shortlist by n-grams once the catalog is large enough")
+    void testSearchCandidates() {
+        repository = newRepository(CatalogIndexSettings.of(3, new String[] { "name", "category" }, 1, 2));
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        laptop.setCategory("Computers");
+        Product phone = new Product();
+        phone.setName("Smartphone");
+        phone.setCategory("Phones");
+        repository.saveAll(List.of(laptop, phone));
+        Product stand = new Product();
+        stand.setName("Laptop Stand");
+        repository.save(stand);
+
+        CatalogSnapshot snapshot = repository.snapshot();
+        assertArrayEquals(new int[] { 0, 2 }, snapshot.searchCandidates("laptop"));
+        assertArrayEquals(new int[] { 1 }, snapshot.searchCandidates("phones"));
+        assertNull(snapshot.searchCandidates("la"));
+    }
+
+    @Test
+    @DisplayName("searchCandidates should not shortlist small catalogs")
+    void testSearchCandidates_SmallCatalog() {
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        repository.save(laptop);
+        Product phone = new Product();
+        phone.setName("Smartphone");
+        repository.save(phone);
+
+        assertNull(repository.snapshot().searchCandidates("laptop"));
+    }
+
+    @Test
+    @DisplayName("snapshot should expose interned name tokens by ordinal")
+    void testSnapshotTokens() {
+        Product maker = new Product();
+        maker.setName("Coffee Maker");
+        Product grinder = new Product();
+        grinder.setName("Coffee-Grinder");
+        repository.saveAll(List.of(maker, grinder));
+
+        CatalogSnapshot catalog = repository.snapshot();
+
+        assertEquals(2, catalog.size());
+        assertEquals(3, catalog.tokenCount());
+        assertEquals(grinder, catalog.product(1));
+        assertEquals(catalog.nameToken(catalog.nameTokensStart(0)), catalog.nameToken(catalog.nameTokensStart(1)));
+        assertEquals("grinder", catalog.token(catalog.nameToken(catalog.nameTokensStart(1) + 1)));
+
+        repository.clear();
+        assertEquals(0, repository.snapshot().tokenCount());
+    }
+
+    @Test
+    @DisplayName("a snapshot should not see writes published after it")
+    void testSnapshotIsolation() {
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        repository.save(laptop);
+        CatalogSnapshot before = repository.snapshot();
+
+        Product laptops = new Product();
+        laptops.setName("Laptops");
+        repository.saveAll(List.of(laptops));
+        CatalogSnapshot after = repository.snapshot();
+
+        assertEquals(1, before.size());
+        assertEquals(List.of(laptop), before.products());
+        assertTrue(before.findById(laptops.getId()).isEmpty());
+        assertEquals(1, before.findByNameWithin("laptop", 1).size());
+        assertEquals(2, after.findByNameWithin("laptop", 1).size());
+        assertTrue(after.version() > before.version());
+
+        repository.clear();
+        assertTrue(repository.snapshot().version() > after.version());
+        assertEquals(2, after.size());
+    }
+
+    @Test
+    @DisplayName("findAll should be a read-only view")
+    void testFindAll_ReadOnly() {
+        Product product = new Product();
+        product.setName("Product 1");
+        repository.save(product);
+
+        assertThrows(UnsupportedOperationException.class, () -> repository.findAll().add(new Product()));
+    }
+
+    @Test
+    @DisplayName("constructor should reject unknown n-gram fields")
+    void testUnknownGramField() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new ProductCatalogRepositoryImpl(3, new String[] { "price" }, 1, 2, "objects"));
+    }
+
+    @Test
+    @DisplayName("findAfter should page from a cursor in insertion order and reject unknown cursors")
+    void testFindAfter() {
+        for (int i = 0; i < 5; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            repository.save(product);
+        }
+        List<Product> all = repository.findAll();
+
+        List<Product> first = repository.findAfter(null, 2);
+        assertEquals(List.of(all.get(0), all.get(1)), first);
+
+        List<Product> next = repository.findAfter(first.get(1).getId(), 2);
+        assertEquals(List.of(all.get(2), all.get(3)), next);
+
+        assertEquals(List.of(all.get(4)), repository.findAfter(next.get(1).getId(), 2));
+        assertTrue(repository.findAfter(all.get(4).getId(), 2).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> repository.findAfter("non-existent-id", 2));
+    }
+
+    @Test
+    @DisplayName("a catalog build should stay invisible until it is swapped in, and only once")
+    void testSwapIn() {
+        Product existing = new Product();
+        existing.setName("Existing");
+        repository.save(existing);
+        CatalogSnapshot before = repository.snapshot();
+
+        CatalogBuild build = repository.startBuild();
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        build.saveAll(List.of(laptop));
+        assertEquals(List.of(existing), repository.findAll());
+
+        repository.swapIn(build);
+        assertEquals(List.of(laptop), repository.findAll());
+        assertEquals(1, repository.snapshot().findByNameWithin("laptop", 0).size());
+        assertEquals(List.of(existing), before.products());
+        assertTrue(repository.snapshot().version() > before.version());
+
+        assertThrows(IllegalStateException.class, () -> repository.swapIn(build));
+        assertThrows(IllegalStateException.class, () -> build.saveAll(List.of(new Product())));
+    }
+
+    @Test
+    @DisplayName("products saved while a build is in flight should survive its swap-in")
+    void testSwapInKeepsLateWrites() {
+        CatalogBuild build = repository.startBuild();
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        build.saveAll(List.of(laptop));
+
+        Product camera = new Product();
+        camera.setName("Camera");
+        repository.save(camera);
+        Product phone = new Product();
+        phone.setName("Phone");
+        repository.saveAll(List.of(phone));
+
+        repository.swapIn(build);
+        assertEquals(List.of(laptop, camera, phone), repository.findAll());
+        assertEquals(camera, repository.findById(camera.getId()).orElseThrow());
+        assertEquals(1, repository.snapshot().findByNameWithin("camera", 0).size());
+
+        CatalogBuild cleared = repository.startBuild();
+        repository.save(new Product());
+        repository.clear();
+        repository.swapIn(cleared);
+        assertTrue(repository.findAll().isEmpty());
+    }
 }
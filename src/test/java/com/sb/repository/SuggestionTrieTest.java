@@ -0,0 +1,74 @@
+package com.sb.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionTrieTest {
+
+    private final TokenDictionary tokens = new TokenDictionary();
+    private final SuggestionTrie trie = new SuggestionTrie(tokens);
+
+    private void addProduct(String... words) {
+        int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            ids[i] = tokens.intern(words[i]);
+        }
+        trie.add(ids);
+    }
+
+    @Test
+    @DisplayName("complete should rank tokens by the number of products carrying them")
+    void testComplete() {
+        addProduct("laptop", "stand");
+        addProduct("lamp");
+        addProduct("laptop");
+        addProduct("lamp", "lamp");
+        addProduct("laptop", "bag");
+
+        assertEquals(List.of("laptop", "lamp"), trie.complete("la", 10));
+        assertEquals(List.of("laptop"), trie.complete("la", 1));
+        assertEquals(List.of("lamp"), trie.complete("lam", 10));
+        assertEquals(List.of(), trie.complete("lax", 10));
+    }
+
+    @Test
+    @DisplayName("complete should break ties alphabetically")
+    void testTies() {
+        addProduct("mouse");
+        addProduct("monitor");
+        addProduct("mouse");
+        addProduct("monitor");
+
+        assertEquals(List.of("monitor", "mouse"), trie.complete("m", 10));
+    }
+
+    @Test
+    @DisplayName("complete should match a brute force count after many incremental adds")
+    void testAgreesWithBruteForce() {
+        Random random = new Random(5);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int n = 0; n < 2000; n++) {
+            String word = "" + (char) ('a' + random.nextInt(3)) + (char) ('a' + random.nextInt(3)) + (char) ('a' + random.nextInt(4));
+            addProduct(word);
+            counts.merge(word, 1, Integer::sum);
+        }
+        for (String prefix : List.of("a", "b", "ab", "cc", "abd")) {
+            List<String> expected = counts.keySet().stream()
+                .filter(word -> word.startsWith(prefix))
+                .sorted(Comparator.comparing((String word) -> -counts.get(word)).thenComparing(Comparator.naturalOrder()))
+                .limit(SuggestionTrie.MAX_COMPLETIONS)
+                .collect(Collectors.toCollection(ArrayList::new));
+            assertEquals(expected, trie.complete(prefix, SuggestionTrie.MAX_COMPLETIONS), prefix);
+        }
+    }
+}
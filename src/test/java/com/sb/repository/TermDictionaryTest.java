@@ -0,0 +1,89 @@
+package com.sb.repository;
+
+import com.sb.service.LevenshteinAutomaton;
+import com.sb.service.Search;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermDictionaryTest {
+
+    private static TermDictionary index(List<String> terms) {
+        TermDictionary dictionary = new TermDictionary();
+        for (int i = 0; i < terms.size(); i++) {
+            dictionary.add(i, terms::get);
+        }
+        return dictionary;
+    }
+
+    @Test
+    @DisplayName("intersect should report every ordinal of every accepted term")
+    void testIntersect() {
+        List<String> terms = List.of("laptop", "lapdog", "laptops", "laptop", "smartphone");
+        TermDictionary dictionary = index(terms);
+
+        List<String> hits = new ArrayList<>();
+        dictionary.terms().intersect(new LevenshteinAutomaton("laptop", 1), 5, terms::get,
+            (ordinal, distance) -> hits.add(ordinal + ":" + distance));
+
+        assertEquals(List.of("0:0", "3:0", "2:1"), hits);
+    }
+
+    @Test
+    @DisplayName("intersect should ignore ordinals at or above the bound")
+    void testUpperBound() {
+        List<String> terms = List.of("laptop", "laptop");
+        TermDictionary dictionary = index(terms);
+
+        List<Integer> hits = new ArrayList<>();
+        dictionary.terms().intersect(new LevenshteinAutomaton("laptop", 0), 1, terms::get, (ordinal, distance) -> hits.add(ordinal));
+
+        assertEquals(List.of(0), hits);
+    }
+
+    @Test
+    @DisplayName("intersect should match a brute force distance scan")
+    void testAgreesWithBruteForce() {
+        Random random = new Random(23);
+        List<String> terms = new ArrayList<>();
+        // past the first rebuild, so both the sorted terms and the tail are searched
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder term = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                term.append((char) ('a' + random.nextInt(5)));
+            }
+            terms.add(term.toString());
+        }
+        TermDictionary dictionary = index(terms);
+
+        for (int n = 0; n < 40; n++) {
+            String query = terms.get(random.nextInt(terms.size()));
+            Search.Distance exact = Search.compile(query);
+            for (int maxEdits = 0; maxEdits <= LevenshteinAutomaton.MAX_EDITS; maxEdits++) {
+                TreeSet<Integer> expected = new TreeSet<>();
+                for (int i = 0; i < terms.size(); i++) {
+                    if (exact.to(terms.get(i), maxEdits) <= maxEdits) {
+                        expected.add(i);
+                    }
+                }
+                TreeSet<Integer> actual = new TreeSet<>();
+                List<String> reported = new ArrayList<>();
+                dictionary.terms().intersect(new LevenshteinAutomaton(query, maxEdits), terms.size(), terms::get,
+                    (ordinal, distance) -> {
+                        assertEquals(exact.to(terms.get(ordinal), Integer.MAX_VALUE), distance);
+                        actual.add(ordinal);
+                        reported.add(terms.get(ordinal));
+                    });
+                assertEquals(expected, actual);
+                assertEquals(reported.stream().sorted().toList(), reported);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.sb.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitParallelDistanceTest {
+
+    private static final String ALPHABET = "abcdé ßж";
+
+    private static String randomString(Random random, int maxLength, int alphabetSize) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(alphabetSize)));
+        }
+        return sb.toString();
+    }
+
+    // a near copy of s: a few random substitutions, insertions, deletions and swaps
+    private static String mutate(Random random, String s, int edits) {
+        StringBuilder sb = new StringBuilder(s);
+        for (int e = 0; e < edits; e++) {
+            int at = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+            char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(4)) {
+                case 0 -> { if (sb.length() > 0) sb.setCharAt(at, c); }
+                case 1 -> sb.insert(at, c);
+                case 2 -> { if (sb.length() > 0) sb.deleteCharAt(at); }
+                default -> {
+                    if (at + 1 < sb.length()) {
+                        char first = sb.charAt(at);
+                        sb.setCharAt(at, sb.charAt(at + 1));
+                        sb.setCharAt(at + 1, first);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void assertAgrees(BitParallelDistance pattern, String text) {
+        String query = pattern.pattern();
+        int expected = Search.bandedDistance(query, text, Math.max(query.length(), text.length()), true);
+        assertEquals(expected, pattern.distance(text, Math.max(query.length(), text.length())), query + " / " + text);
+        for (int max = 0; max <= 4; max++) {
+            assertEquals(Math.min(expected, max + 1), pattern.distance(text, max), query + " / " + text + " max " + max);
+            assertEquals(Math.min(expected, max + 1), Search.distance(query, text, max));
+            assertEquals(Math.min(expected, max + 1), Search.distance(text, query, max));
+        }
+    }
+
+    @Test
+    @DisplayName("distance should agree with the dynamic program on random pairs")
+    void testAgreesOnRandomPairs() {
+        Random random = new Random(11);
+        for (int n = 0; n < 3000; n++) {
+            int alphabetSize = 2 + random.nextInt(ALPHABET.length() - 1);
+            BitParallelDistance pattern = new BitParallelDistance(randomString(random, 12, alphabetSize));
+            for (int t = 0; t < 3; t++) {
+                assertAgrees(pattern, randomString(random, 12, alphabetSize));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("distance should agree with the dynamic program on near matches up to 64 characters")
+    void testAgreesOnNearMatches() {
+        Random random = new Random(13);
+        for (int n = 0; n < 2000; n++) {
+            String query = randomString(random, BitParallelDistance.MAX_PATTERN_LENGTH, 4);
+            BitParallelDistance pattern = new BitParallelDistance(query);
+            assertAgrees(pattern, mutate(random, query, random.nextInt(4)));
+            assertAgrees(pattern, randomString(random, 80, 4));
+        }
+    }
+
+    @Test
+    @DisplayName("distance should handle transpositions, empty strings and a full 64-bit pattern")
+    void testEdgeCases() {
+        assertEquals(1, new BitParallelDistance("test").distance("tets", 4));
+        // optimal string alignment never edits a transposed pair again, unlike Damerau-Levenshtein
+        assertEquals(3, new BitParallelDistance("ca").distance("abc", 4));
+        assertEquals(3, new BitParallelDistance("").distance("abc", 4));
+        assertEquals(0, new BitParallelDistance("").distance("", 0));
+        String full = "a".repeat(63) + "b";
+        assertEquals(1, new BitParallelDistance(full).distance("a".repeat(63) + "c", 2));
+        assertEquals(1, new BitParallelDistance(full).distance("a".repeat(62) + "ba", 2));
+    }
+
+    @Test
+    @DisplayName("a compiled query should agree with the dynamic program on either side of 64 characters")
+    void testCompiledQuery() {
+        Random random = new Random(17);
+        for (int n = 0; n < 200; n++) {
+            String query = randomString(random, 100, 4);
+            Search.Distance compiled = Search.compile(query);
+            for (int t = 0; t < 5; t++) {
+                String text = random.nextBoolean() ? mutate(random, query, random.nextInt(4)) : randomString(random, 40, 4);
+                int expected = Search.bandedDistance(query, text, Math.max(query.length(), text.length()), true);
+                assertEquals(expected, compiled.to(text, Integer.MAX_VALUE), query + " / " + text);
+                assertEquals(Math.min(expected, 3), compiled.to(text, 2), query + " / " + text);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> Search.compile(null));
+        assertThrows(IllegalArgumentException.class, () -> Search.compile("a".repeat(65)).to("a", -1));
+    }
+
+    @Test
+    @DisplayName("a Levenshtein query should count transpositions as two edits on either side of 64 characters")
+    void testCompiledLevenshtein() {
+        assertEquals(2, Search.compileLevenshtein("ab").to("ba", 5));
+        assertEquals(3, Search.compileLevenshtein("ca").to("abc", 5));
+        Random random = new Random(23);
+        for (int n = 0; n < 200; n++) {
+            String query = randomString(random, 100, 4);
+            Search.Distance compiled = Search.compileLevenshtein(query);
+            for (int t = 0; t < 5; t++) {
+                String text = random.nextBoolean() ? mutate(random, query, random.nextInt(4)) : randomString(random, 40, 4);
+                int expected = Search.bandedDistance(query, text, Math.max(query.length(), text.length()), false);
+                assertEquals(expected, compiled.to(text, Integer.MAX_VALUE), query + " / " + text);
+                assertEquals(Math.min(expected, 3), compiled.to(text, 2), query + " / " + text);
+                assertTrue(expected >= Search.distance(query, text) && expected <= 2 * Search.distance(query, text));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("one instance should give the same distances when shared between threads")
+    void testSharedBetweenThreads() {
+        BitParallelDistance pattern = new BitParallelDistance("abcжd");
+        Random random = new Random(3);
+        List<String> texts = IntStream.range(0, 2000)
+            .mapToObj(i -> randomString(random, 10, 5) + (i % 3 == 0 ? "ж" : ""))
+            .toList();
+
+        List<Integer> parallel = texts.parallelStream().map(text -> pattern.distance(text, 3)).toList();
+
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(Math.min(Search.bandedDistance("abcжd", texts.get(i), 3, true), 4), parallel.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("should reject patterns over 64 characters and invalid arguments")
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BitParallelDistance("a".repeat(65)));
+        assertThrows(IllegalArgumentException.class, () -> new BitParallelDistance(null));
+        assertThrows(IllegalArgumentException.class, () -> new BitParallelDistance("a").distance(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BitParallelDistance("a").distance("b", -1));
+    }
+}
@@ -0,0 +1,65 @@
+package com.sb.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevenshteinAutomatonTest {
+
+    @Test
+    @DisplayName("automaton should accept strings within the edit budget")
+    void testAccepts() {
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton("laptop", 1);
+
+        assertTrue(automaton.accepts("laptop"));
+        assertTrue(automaton.accepts("laptops"));
+        assertTrue(automaton.accepts("lpatop"));
+        assertTrue(automaton.accepts("laptp"));
+        assertFalse(automaton.accepts("lapdog"));
+        assertFalse(automaton.accepts("laptop stand"));
+    }
+
+    @Test
+    @DisplayName("automaton should report the same distance as Search.distance")
+    void testAgreesWithSearchDistance() {
+        Random random = new Random(17);
+        for (int n = 0; n < 300; n++) {
+            String query = randomString(random);
+            Search.Distance exact = Search.compile(query);
+            for (int maxEdits = 0; maxEdits <= LevenshteinAutomaton.MAX_EDITS; maxEdits++) {
+                LevenshteinAutomaton automaton = new LevenshteinAutomaton(query, maxEdits);
+                for (int k = 0; k < 20; k++) {
+                    String input = randomString(random);
+                    int state = automaton.start();
+                    for (int i = 0; i < input.length(); i++) {
+                        state = automaton.step(state, input.charAt(i));
+                    }
+                    int expected = exact.to(input, Integer.MAX_VALUE);
+                    assertEquals(expected <= maxEdits, automaton.accepts(state), query + " / " + input);
+                    if (expected <= maxEdits) {
+                        assertEquals(expected, automaton.distance(state), query + " / " + input);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("automaton should reject edit budgets outside 0..2")
+    void testInvalidBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new LevenshteinAutomaton("abc", 3));
+        assertThrows(IllegalArgumentException.class, () -> new LevenshteinAutomaton("abc", -1));
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(7);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+}
@@ -1,17 +1,28 @@
 package com.sb.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.domain.BatchSearchResult;
+import com.sb.domain.BulkIngestResult;
 import com.sb.domain.Product;
+import com.sb.domain.ProductFilter;
+import com.sb.domain.ProductPage;
+import com.sb.domain.ReloadStatus;
+import com.sb.domain.SearchResult;
+import com.sb.repository.CatalogBuild;
+import com.sb.repository.CatalogSnapshot;
+import com.sb.repository.ProductCatalogRepositoryImpl;
 import com.sb.repository.ProductCatalogRepositoryInterface;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.time.Duration;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,11 +30,33 @@ import static org.mockito.Mockito.*;
 
 class ProductCatalogServiceImplTest {
 
+    private static final String FEED = """
+        [
+          {"name": "Laptop", "category": "Electronics", "price": 1500.0, "imageUrl": "laptop.jpg"},
+          {"name": "Smartphone", "category": "Electronics", "price": 999.0, "imageUrl": "smartphone.jpg"},
+          {"name": "Coffee Maker", "category": "Appliances", "price": 85.0, "imageUrl": "coffee_maker.jpg"}
+        ]
+        """;
+
     @Mock
     private ProductCatalogRepositoryInterface productRepository;
 
-    @Mock
-    private ObjectMapper objectMapper;
+    @Spy
+    private ProductFeedReader feedReader = new ProductFeedReader(new ObjectMapper(), 2, new ByteArrayResource(FEED.getBytes()));
+
+    @Spy
+    private ProductSearchEngine searchEngine = new ProductSearchEngine();
+
+    @Spy
+    private SearchResultCache searchCache = new SearchResultCache(100, Duration.ofMinutes(1));
+
+    @Spy
+    private CatalogReloader reloader = new CatalogReloader();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private SearchMetrics searchMetrics = new SearchMetrics(meterRegistry);
 
     @InjectMocks
     private ProductCatalogServiceImpl productService;
@@ -33,6 +66,12 @@ class ProductCatalogServiceImplTest {
         MockitoAnnotations.openMocks(this);
     }
 
+    private static CatalogSnapshot snapshotOf(List<Product> products) {
+        ProductCatalogRepositoryImpl repository = new ProductCatalogRepositoryImpl();
+        repository.saveAll(products);
+        return repository.snapshot();
+    }
+
     @Test
     @DisplayName("addProduct should throw exception for null product")
     void testAddProduct_NullProduct() {
@@ -110,10 +149,12 @@ class ProductCatalogServiceImplTest {
     }
 
     @Test
-    @DisplayName("searchProducts should throw exception for null or empty query")
+    @DisplayName("searchProducts should throw exception for null, empty or punctuation-only query")
     void testSearchProducts_NullOrEmpty() {
         assertThrows(IllegalArgumentException.class, () -> productService.searchProducts(null));
         assertThrows(IllegalArgumentException.class, () -> productService.searchProducts("  "));
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProducts("!!!"));
+        verify(productRepository, never()).snapshot();
     }
 
     @Test
@@ -126,7 +167,7 @@ class ProductCatalogServiceImplTest {
         p2.setName("Smartphone");
 
         List<Product> allProducts = List.of(p1, p2);
-        when(productRepository.findAll()).thenReturn(allProducts);
+        when(productRepository.snapshot()).thenReturn(snapshotOf(allProducts));
 
         List<Product> results = productService.searchProducts("laptop");
         assertFalse(results.isEmpty());
@@ -134,34 +175,364 @@ class ProductCatalogServiceImplTest {
     }
 
     @Test
-    @DisplayName("prepopulateProducts should load products from JSON and save them")
-    void testPrepopulateProducts() throws IOException {
-        InputStream inputStream = mock(InputStream.class);
-        ClassPathResource resource = mock(ClassPathResource.class);
-        List<Product> products = List.of(new Product());
+    @DisplayName("searchProducts should match names regardless of accents, case and punctuation")
+    void testSearchProducts_FoldedKeys() {
+        Product cafe = product("Café Crème", "Beverages", 4.0);
+        Product cable = product("USB-C Cable", "Electronics", 9.0);
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(cable, cafe)));
+
+        assertEquals(cafe, productService.searchProducts("cafe creme", 1).get(0));
+        assertEquals(cafe, productService.searchProducts("CAFÉ crème", 1, SearchMode.AUTOMATON, 0).get(0));
+        assertEquals(cable, productService.searchProducts("usb c", 1, SearchMode.TOKENS, 2).get(0));
+        assertEquals(List.of("creme"), productService.suggest("Crè", 5));
+    }
+
+    @Test
+    @DisplayName("searchProducts should return at most the requested number of results")
+    void testSearchProducts_Limit() {
+        List<Product> allProducts = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            Product p = new Product();
+            p.setName("Product " + i);
+            allProducts.add(p);
+        }
+        when(productRepository.snapshot()).thenReturn(snapshotOf(allProducts));
+
+        assertEquals(10, productService.searchProducts("product").size());
+        assertEquals(3, productService.searchProducts("product", 3).size());
+        assertEquals(25, productService.searchProducts("product", 50).size());
+    }
+
+    @Test
+    @DisplayName("searchProducts in BK-tree mode should return the nearest names")
+    void testSearchProducts_BkTreeMode() {
+        Product p1 = new Product();
+        p1.setName("Laptop");
+        Product p2 = new Product();
+        p2.setName("Laptop Stand");
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(p2, p1)));
+
+        List<Product> results = productService.searchProducts("Laptp", 1, SearchMode.BKTREE);
+        assertEquals(List.of(p1), results);
+    }
+
+    @Test
+    @DisplayName("searchProducts in automaton mode should return the closest matches up to the limit")
+    void testSearchProducts_AutomatonMode() {
+        Product p1 = new Product();
+        p1.setName("Laptop");
+        Product p2 = new Product();
+        p2.setName("Laptops");
+
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(p2, p1)));
 
-        when(objectMapper.readValue(
-            any(InputStream.class),
-            ArgumentMatchers.<TypeReference<List<Product>>>any()))
-            .thenReturn(products);
+        assertEquals(List.of(p1), productService.searchProducts("Laptop", 1, SearchMode.AUTOMATON, 1));
+        assertThrows(IllegalArgumentException.class,
+            () -> productService.searchProducts("Laptop", 1, SearchMode.AUTOMATON, 3));
+    }
 
-        doNothing().when(productRepository).clear();
-        doNothing().when(productRepository).saveAll(products);
+    @Test
+    @DisplayName("searchProducts in token mode should match words in any order")
+    void testSearchProducts_TokenMode() {
+        Product maker = new Product();
+        maker.setName("Coffee Maker");
+        Product mouse = new Product();
+        mouse.setName("Gaming Mouse");
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(mouse, maker)));
+
+        List<Product> results = productService.searchProducts("Makr Coffe", 1, SearchMode.TOKENS);
+        assertEquals(List.of(maker), results);
+    }
+
+    @Test
+    @DisplayName("searchProducts should record latency, candidates, distances, results and stages")
+    void testSearchProducts_Metrics() {
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(product("Laptop", "Electronics", 1500.0),
+            product("Laptop Stand", "Accessories", 40.0), product("Smartphone", "Electronics", 999.0))));
+
+        productService.searchProducts("laptp", 5);
+        productService.searchProducts("laptp", 5);
+
+        assertEquals(1, meterRegistry.get("catalog.search.latency").tags("mode", "scan", "cache", "miss").timer().count());
+        assertEquals(1, meterRegistry.get("catalog.search.latency").tags("mode", "scan", "cache", "hit").timer().count());
+        assertEquals(3, meterRegistry.get("catalog.search.candidates").summary().totalAmount());
+        assertEquals(3, meterRegistry.get("catalog.search.distances").summary().totalAmount());
+        assertEquals(6, meterRegistry.get("catalog.search.results").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("catalog.search.stage").tag("stage", "scoring").timer().count());
+    }
+
+    @Test
+    @DisplayName("searchProducts should serve repeated queries from the cache until the catalog changes")
+    void testSearchProducts_Cached() {
+        Product p1 = new Product();
+        p1.setName("Laptop");
+        ProductCatalogRepositoryImpl repository = new ProductCatalogRepositoryImpl();
+        repository.saveAll(List.of(p1));
+        when(productRepository.snapshot()).thenAnswer(invocation -> repository.snapshot());
+
+        List<Product> first = productService.searchProducts("Laptop", 5);
+        assertEquals(first, productService.searchProducts("LAPTOP", 5));
+        verify(searchEngine, times(1)).search(any(), eq("laptop"), eq(5), any(), any(), any());
+
+        Product p2 = new Product();
+        p2.setName("Laptop Stand");
+        repository.save(p2);
+        assertEquals(List.of(p1, p2), productService.searchProducts("laptop", 5));
+        verify(searchEngine, times(2)).search(any(), eq("laptop"), eq(5), any(), any(), any());
+
+        SearchResultCache.Stats stats = productService.searchCacheStats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.invalidations());
+    }
+
+    @Test
+    @DisplayName("searchProductsBatch should answer cache misses in one pass and keep the query order")
+    void testSearchProductsBatch() {
+        Product laptop = new Product();
+        laptop.setName("Laptop");
+        Product maker = new Product();
+        maker.setName("Coffee Maker");
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(laptop, maker)));
+        productService.searchProducts("coffee", 1);
+
+        List<BatchSearchResult> results = productService.searchProductsBatch(List.of("LAPTOP", "coffee", "laptop"), 1,
+            SearchMode.SCAN, 2);
+
+        assertEquals(List.of("LAPTOP", "coffee", "laptop"), results.stream().map(BatchSearchResult::query).toList());
+        assertEquals(List.of(laptop), results.get(0).items());
+        assertEquals(List.of(maker), results.get(1).items());
+        assertEquals(List.of(laptop), results.get(2).items());
+        verify(searchEngine, times(1)).searchAll(any(), eq(List.of("laptop")), eq(1), any());
+        assertEquals(1, productService.searchCacheStats().hits());
+        assertEquals(1, meterRegistry.get("catalog.search.batch.latency").tag("mode", "scan").timer().count());
+        assertEquals(3, meterRegistry.get("catalog.search.batch.queries").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("catalog.search.latency").tags("mode", "scan", "cache", "hit").timer().count());
+        assertEquals(2, meterRegistry.get("catalog.search.candidates").summary().count());
+        assertEquals(2, meterRegistry.get("catalog.search.stage").tag("stage", "scoring").timer().count());
+    }
+
+    @Test
+    @DisplayName("searchProductsBatch should reject empty, blank and oversized batches")
+    void testSearchProductsBatch_Invalid() {
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProductsBatch(List.of(), 5, SearchMode.SCAN, 2));
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProductsBatch(List.of("a", " "), 5, SearchMode.SCAN, 2));
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProductsBatch(List.of("a", "?!"), 5, SearchMode.SCAN, 2));
+        List<String> tooMany = Collections.nCopies(ProductCatalogServiceImpl.MAX_BATCH_QUERIES + 1, "a");
+        assertThrows(IllegalArgumentException.class, () -> productService.searchProductsBatch(tooMany, 5, SearchMode.SCAN, 2));
+    }
+
+    private static Product product(String name, String category, double price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setPrice(price);
+        return product;
+    }
+
+    @Test
+    @DisplayName("getProducts should filter by category and price and sort by price")
+    void testGetProducts_FilteredAndSorted() {
+        Product laptop = product("Laptop", "Electronics", 1500.0);
+        Product phone = product("Smartphone", "Electronics", 999.0);
+        Product maker = product("Coffee Maker", "Appliances", 85.0);
+        Product tablet = product("Tablet", "Electronics", 999.0);
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(laptop, phone, maker, tablet)));
+
+        assertEquals(List.of(laptop, phone, tablet),
+            productService.getProducts(0, 10, new ProductFilter("electronics", null, null), ProductSort.DEFAULT));
+        assertEquals(List.of(maker, phone, tablet),
+            productService.getProducts(0, 10, new ProductFilter(null, 50.0, 1000.0), ProductSort.PRICE_ASC));
+        assertEquals(List.of(laptop, phone),
+            productService.getProducts(0, 2, new ProductFilter("Electronics", null, null), ProductSort.PRICE_DESC));
+        assertEquals(List.of(tablet),
+            productService.getProducts(1, 2, new ProductFilter("Electronics", null, null), ProductSort.PRICE_DESC));
+        assertEquals(new ProductPage(List.of(tablet), null),
+            productService.getProductsAfter(phone.getId(), 5, new ProductFilter("electronics", 900.0, null)));
+    }
+
+    @Test
+    @DisplayName("searchProducts should only score products matching the filter")
+    void testSearchProducts_Filtered() {
+        Product laptop = product("Laptop", "Electronics", 1500.0);
+        Product stand = product("Laptop Stand", "Accessories", 40.0);
+        Product bag = product("Laptop Bag", "Accessories", 60.0);
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(laptop, stand, bag)));
+
+        assertEquals(List.of(stand, bag),
+            productService.searchProducts("laptop", 5, SearchMode.SCAN, 2, new ProductFilter("accessories", null, null), ProductSort.DEFAULT));
+        assertEquals(List.of(bag, stand),
+            productService.searchProducts("laptop", 5, SearchMode.SCAN, 2, new ProductFilter("accessories", null, null), ProductSort.PRICE_DESC));
+        assertEquals(List.of(laptop),
+            productService.searchProducts("laptop", 5, SearchMode.BKTREE, 2, new ProductFilter(null, 100.0, null), ProductSort.DEFAULT));
+        assertEquals(List.of(),
+            productService.searchProducts("laptop", 5, SearchMode.TOKENS, 2, new ProductFilter("Garden", null, null), ProductSort.DEFAULT));
+    }
+
+    @Test
+    @DisplayName("suggest should complete the last word and keep the words before it")
+    void testSuggest() {
+        Product maker = new Product();
+        maker.setName("Coffee Maker");
+        Product mug = new Product();
+        mug.setName("Coffee Mug");
+        Product kit = new Product();
+        kit.setName("Maker Kit");
+        when(productRepository.snapshot()).thenReturn(snapshotOf(List.of(maker, mug, kit)));
+
+        assertEquals(List.of("coffee maker", "coffee mug"), productService.suggest("Coffee M", 5));
+        assertEquals(List.of("maker"), productService.suggest("ma", 1));
+        assertThrows(IllegalArgumentException.class, () -> productService.suggest("--", 5));
+        assertThrows(IllegalArgumentException.class, () -> productService.suggest(" ", 5));
+    }
+
+    @Test
+    @DisplayName("searchProductsAsync should return partial results at the deadline and not cache them")
+    void testSearchProductsAsync() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Product product = new Product();
+            product.setName("Laptop " + i);
+            products.add(product);
+        }
+        CatalogSnapshot snapshot = snapshotOf(products);
+        when(productRepository.snapshot()).thenReturn(snapshot);
+
+        SearchResult expired = productService.searchProductsAsync("laptop", 5, SearchMode.SCAN, 2, Duration.ZERO).get();
+        assertTrue(expired.partial());
+        assertEquals(0, productService.searchCacheStats().size());
+
+        SearchResult complete = productService.searchProductsAsync("laptop", 5, SearchMode.SCAN, 2, Duration.ofMinutes(1)).get();
+        assertFalse(complete.partial());
+        assertEquals(products.subList(0, 5), complete.items());
+        assertEquals(1, productService.searchCacheStats().size());
+    }
+
+    @Test
+    @DisplayName("prepopulateProducts should build the catalog from JSON and swap it in")
+    void testPrepopulateProducts() {
+        CatalogBuild build = new ProductCatalogRepositoryImpl().startBuild();
+        when(productRepository.startBuild()).thenReturn(build);
 
         productService.prepopulateProducts();
 
-        verify(productRepository).clear();
-        verify(productRepository).saveAll(products);
+        assertEquals(3, build.size());
+        verify(productRepository).swapIn(build);
+        verify(productRepository, never()).clear();
+        verify(productRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("reloadProducts should reload in the background and report progress and duration")
+    void testReloadProducts() throws InterruptedException {
+        ProductCatalogRepositoryImpl repository = new ProductCatalogRepositoryImpl();
+        Product existing = new Product();
+        existing.setName("Existing");
+        repository.save(existing);
+        when(productRepository.startBuild()).thenAnswer(invocation -> repository.startBuild());
+        doAnswer(invocation -> {
+            repository.swapIn(invocation.getArgument(0));
+            return null;
+        }).when(productRepository).swapIn(any());
+
+        ReloadStatus started = productService.reloadProducts();
+        ReloadStatus status = started;
+        for (int i = 0; i < 100 && status.state() == ReloadStatus.State.RUNNING; i++) {
+            Thread.sleep(20);
+            status = productService.getReloadStatus(started.id());
+        }
+
+        assertEquals(ReloadStatus.State.COMPLETED, status.state());
+        assertEquals(3, status.loaded());
+        assertNotNull(status.durationMillis());
+        assertEquals(List.of("Laptop", "Smartphone", "Coffee Maker"),
+            repository.findAll().stream().map(Product::getName).toList());
+        assertThrows(IllegalArgumentException.class, () -> productService.getReloadStatus("unknown"));
+    }
+
+    @Test
+    @DisplayName("a product added while a reload is building should still be there afterwards")
+    void testReloadProducts_KeepsConcurrentSaves() throws InterruptedException {
+        ProductCatalogRepositoryImpl repository = new ProductCatalogRepositoryImpl();
+        Product added = product("Tablet", "Electronics", 300.0);
+        added.setImageUrl("tablet.jpg");
+        when(productRepository.save(any())).thenAnswer(invocation -> repository.save(invocation.getArgument(0)));
+        when(productRepository.startBuild()).thenAnswer(invocation -> {
+            CatalogBuild build = repository.startBuild();
+            productService.addProduct(added);
+            return build;
+        });
+        doAnswer(invocation -> {
+            repository.swapIn(invocation.getArgument(0));
+            return null;
+        }).when(productRepository).swapIn(any());
+
+        ReloadStatus started = productService.reloadProducts();
+        ReloadStatus status = started;
+        for (int i = 0; i < 100 && status.state() == ReloadStatus.State.RUNNING; i++) {
+            Thread.sleep(20);
+            status = productService.getReloadStatus(started.id());
+        }
+
+        assertEquals(ReloadStatus.State.COMPLETED, status.state());
+        assertEquals(List.of("Laptop", "Smartphone", "Coffee Maker", "Tablet"),
+            repository.findAll().stream().map(Product::getName).toList());
+        assertEquals("Tablet", repository.findById(added.getId()).orElseThrow().getName());
     }
 
     @Test
     @DisplayName("prepopulateProducts should throw exception on IOException")
     void testPrepopulateProducts_Exception() throws IOException {
-
-        when(objectMapper.readValue(any(InputStream.class), ArgumentMatchers.<TypeReference<List<Product>>>any()))
-            .thenThrow(new IOException("Test exception"));
+        Resource resource = mock(Resource.class);
+        when(resource.getInputStream()).thenThrow(new IOException("Test exception"));
+        doReturn(resource).when(feedReader).defaultFeed();
 
         RuntimeException ex = assertThrows(RuntimeException.class, () -> productService.prepopulateProducts());
         assertEquals("Error loading products.json", ex.getMessage());
     }
+
+    @Test
+    @DisplayName("bulkAddProducts should stream NDJSON in batches and count invalid products per batch")
+    void testBulkAddProducts_Ndjson() {
+        String feed = """
+            {"name": "Laptop", "category": "Electronics", "price": 1500.0, "imageUrl": "laptop.jpg"}
+            {"name": "", "category": "Electronics", "price": 999.0, "imageUrl": "smartphone.jpg"}
+            {"name": "Coffee Maker", "category": "Appliances", "price": 85.0, "imageUrl": "coffee_maker.jpg"}
+            """;
+
+        BulkIngestResult result = productService.bulkAddProducts(new ByteArrayInputStream(feed.getBytes()));
+
+        assertEquals(2, result.accepted());
+        assertEquals(1, result.rejected());
+        assertEquals(List.of(new BulkIngestResult.Batch(0, 1, 1), new BulkIngestResult.Batch(1, 1, 0)), result.batches());
+        verify(productRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("bulkAddProducts should reject a malformed feed")
+    void testBulkAddProducts_Malformed() {
+        assertThrows(IllegalArgumentException.class,
+            () -> productService.bulkAddProducts(new ByteArrayInputStream("[{\"name\": ".getBytes())));
+    }
+
+    @Test
+    @DisplayName("getProductsAfter should return the next cursor until the last page")
+    void testGetProductsAfter() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Product p = new Product();
+            p.setId(String.valueOf(i));
+            products.add(p);
+        }
+        when(productRepository.findAfter(null, 3)).thenReturn(products);
+        when(productRepository.findAfter("2", 3)).thenReturn(products.subList(2, 3));
+
+        ProductPage first = productService.getProductsAfter(null, 2);
+        assertEquals(products.subList(0, 2), first.items());
+        assertEquals("2", first.nextCursor());
+
+        ProductPage last = productService.getProductsAfter("2", 2);
+        assertEquals(products.subList(2, 3), last.items());
+        assertNull(last.nextCursor());
+    }
 }
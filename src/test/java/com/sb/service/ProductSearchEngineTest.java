@@ -0,0 +1,203 @@
+package com.sb.service;
+
+import com.sb.domain.Product;
+import com.sb.repository.CatalogIndexSettings;
+import com.sb.repository.CatalogSnapshot;
+import com.sb.repository.ProductCatalogRepositoryImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchEngineTest {
+
+    private final ProductSearchEngine engine = new ProductSearchEngine();
+
+    private static Product product(String name) {
+        Product p = new Product();
+        p.setName(name);
+        return p;
+    }
+
+    private static CatalogSnapshot snapshotOf(List<Product> products) {
+        ProductCatalogRepositoryImpl repository = new ProductCatalogRepositoryImpl();
+        repository.saveAll(products);
+        return repository.snapshot();
+    }
+
+    @Test
+    @DisplayName("search should rank names containing the query first")
+    void testContainsRanksFirst() {
+        CatalogSnapshot snapshot = snapshotOf(List.of(product("Smartphone"), product("Laptop Stand"), product("Laptop")));
+
+        List<Product> results = engine.search(snapshot, "laptop", 2);
+
+        assertEquals(2, results.size());
+        assertEquals("Laptop Stand", results.get(0).getName());
+        assertEquals("Laptop", results.get(1).getName());
+    }
+
+    @Test
+    @DisplayName("search should treat a null name as empty")
+    void testNullName() {
+        List<Product> results = engine.search(snapshotOf(List.of(product(null), product("abc"))), "abc", 10);
+
+        assertEquals(2, results.size());
+        assertEquals("abc", results.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("search should reject a non-positive limit")
+    void testInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> engine.search(snapshotOf(List.of()), "abc", 0));
+    }
+
+    @Test
+    @DisplayName("search should match a full stable sort by score")
+    void testMatchesFullSort() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = 3 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                name.append((char) ('a' + random.nextInt(6)));
+            }
+            products.add(product(name.toString()));
+        }
+        CatalogSnapshot snapshot = snapshotOf(products);
+
+        for (String query : List.of("abc", "fedcba", "aaaa", "b")) {
+            List<Product> expected = products.stream()
+                .sorted(Comparator.comparingInt((Product p) -> ProductSearchEngine.score(query, p.getName())))
+                .limit(10)
+                .collect(Collectors.toList());
+            assertEquals(expected, engine.search(snapshot, query, 10));
+        }
+    }
+
+    @Test
+    @DisplayName("parallel search should return exactly the sequential results")
+    void testParallelMatchesSequential() {
+        Random random = new Random(7);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder name = new StringBuilder();
+            int words = 1 + random.nextInt(3);
+            for (int w = 0; w < words; w++) {
+                name.append(w > 0 ? " " : "");
+                int length = 3 + random.nextInt(6);
+                for (int j = 0; j < length; j++) {
+                    name.append((char) ('a' + random.nextInt(5)));
+                }
+            }
+            products.add(product(name.toString()));
+        }
+        CatalogSnapshot snapshot = snapshotOf(products);
+        ProductSearchEngine parallel = new ProductSearchEngine(4, 1);
+        try {
+            for (String query : List.of("abc", "edcba", "aaaa", "b", "abcde abc")) {
+                for (int limit : List.of(1, 10, 100)) {
+                    assertEquals(engine.search(snapshot, query, limit), parallel.search(snapshot, query, limit));
+                    assertEquals(engine.searchTokens(snapshot, Tokenizer.tokens(query), limit),
+                        parallel.searchTokens(snapshot, Tokenizer.tokens(query), limit));
+                }
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("searchAll should return what each query's own search returns, indexed or not")
+    void testSearchAllMatchesSearch() {
+        Random random = new Random(9);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = 4 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                name.append((char) ('a' + random.nextInt(8)));
+            }
+            products.add(product(name.toString()));
+        }
+        ProductCatalogRepositoryImpl indexed = new ProductCatalogRepositoryImpl(CatalogIndexSettings.of(3, new String[] { "name" }, 2, 0));
+        indexed.saveAll(products);
+        List<String> queries = List.of("abcdef", "hgfe", "a", "abcdef", "zzzzzz", "bcadefgh");
+        ProductSearchEngine parallel = new ProductSearchEngine(4, 1);
+        try {
+            for (CatalogSnapshot snapshot : List.of(snapshotOf(products), indexed.snapshot())) {
+                List<List<Product>> expected = queries.stream().map(q -> engine.search(snapshot, q, 7)).collect(Collectors.toList());
+                assertEquals(expected, engine.searchAll(snapshot, queries, 7));
+                assertEquals(expected, parallel.searchAll(snapshot, queries, 7));
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("an indexed search should return the full scan's results when few names are near the query")
+    void testIndexedSearchFallsBackToScan() {
+        Random random = new Random(11);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = 5 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                name.append((char) ('k' + random.nextInt(10)));
+            }
+            products.add(product(name.toString()));
+        }
+        products.add(product("Apple iPhone 13 Pro Max"));
+        products.add(product("Samsung Galaxy S21"));
+        ProductCatalogRepositoryImpl indexed = new ProductCatalogRepositoryImpl();
+        indexed.saveAll(products);
+        CatalogSnapshot snapshot = indexed.snapshot();
+        assertNotNull(snapshot.searchCandidates("iphone"));
+
+        List<Product> iphone = engine.search(snapshot, "iphone", 10);
+        assertEquals(10, iphone.size());
+        assertEquals("Apple iPhone 13 Pro Max", iphone.get(0).getName());
+
+        CatalogSnapshot scanned = snapshotOf(products);
+        List<String> queries = List.of("iphone", "galaxy s22", "samsnug galxy", "klmnop", "abcdefgh");
+        for (String query : queries) {
+            assertEquals(engine.search(scanned, query, 10), engine.search(snapshot, query, 10), query);
+        }
+        assertEquals(engine.searchAll(scanned, queries, 10), engine.searchAll(snapshot, queries, 10));
+
+        // the shortlist is not scored again by the fallback
+        SearchStats stats = new SearchStats();
+        engine.search(snapshot, "galaxy s22", 10, SearchDeadline.NONE, null, stats);
+        assertEquals(snapshot.size(), stats.candidates());
+        SearchStats batchStats = new SearchStats();
+        engine.searchAll(snapshot, List.of("galaxy s22"), 10, batchStats);
+        assertEquals(snapshot.size(), batchStats.candidates());
+    }
+
+    @Test
+    @DisplayName("searchTokens should match reordered and misspelled words")
+    void testSearchTokens() {
+        CatalogSnapshot snapshot = snapshotOf(List.of(product("Coffee Maker"), product("Maker Kit"), product("Gaming Mouse"), product("Coffee Grinder")));
+
+        List<Product> results = engine.searchTokens(snapshot, Tokenizer.tokens("makr coffe"), 2);
+
+        assertEquals(2, results.size());
+        assertEquals("Coffee Maker", results.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("searchTokens should return nothing for a query without tokens")
+    void testSearchTokens_NoTokens() {
+        CatalogSnapshot snapshot = snapshotOf(List.of(product("Coffee Maker")));
+
+        assertTrue(engine.searchTokens(snapshot, Tokenizer.tokens("--"), 10).isEmpty());
+    }
+}
@@ -0,0 +1,30 @@
+package com.sb.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchKeysTest {
+
+    @Test
+    @DisplayName("of should lowercase, strip accents and collapse punctuation")
+    void testFolding() {
+        assertEquals("cafe", SearchKeys.of("Café"));
+        assertEquals("creme brulee", SearchKeys.of("  Crème-Brûlée! "));
+        assertEquals("usb c cable 2m", SearchKeys.of("USB-C Cable (2m)"));
+        assertEquals("strasse", SearchKeys.of("STRASSE"));
+        assertEquals("ab12", SearchKeys.of("ＡＢ１２"));
+        assertEquals("office", SearchKeys.of("oﬃce"));
+        assertEquals("", SearchKeys.of("?!"));
+        assertEquals("", SearchKeys.of(null));
+    }
+
+    @Test
+    @DisplayName("of should return an already folded key as is")
+    void testFoldedKeyUnchanged() {
+        String key = "coffee maker 2000";
+        assertSame(key, SearchKeys.of(key));
+        assertEquals("coffee maker", SearchKeys.of("coffee  maker"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.sb.service;
+
+import com.sb.domain.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private static SearchResultCache.Key key(long version, String query) {
+        return new SearchResultCache.Key(version, query, 10, SearchMode.SCAN, 0);
+    }
+
+    private static List<Product> results(String name) {
+        Product product = new Product();
+        product.setName(name);
+        return List.of(product);
+    }
+
+    @Test
+    @DisplayName("get should return what was put for the same key and count hits and misses")
+    void testHitAndMiss() {
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofMinutes(1));
+        assertNull(cache.get(key(1, "laptop")));
+        cache.put(key(1, "laptop"), results("Laptop"));
+
+        assertEquals("Laptop", cache.get(key(1, "laptop")).get(0).getName());
+        assertNull(cache.get(new SearchResultCache.Key(1, "laptop", 5, SearchMode.SCAN, 0)));
+
+        SearchResultCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    @DisplayName("put should evict the least recently used entry once full")
+    void testSizeEviction() {
+        SearchResultCache cache = new SearchResultCache(2, Duration.ofMinutes(1));
+        cache.put(key(1, "a"), results("A"));
+        cache.put(key(1, "b"), results("B"));
+        cache.get(key(1, "a"));
+        cache.put(key(1, "c"), results("C"));
+
+        assertNotNull(cache.get(key(1, "a")));
+        assertNull(cache.get(key(1, "b")));
+        assertNotNull(cache.get(key(1, "c")));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    @DisplayName("a segmented cache should stay within its size and keep serving concurrent lookups")
+    void testSegmentedConcurrentAccess() throws InterruptedException {
+        SearchResultCache cache = new SearchResultCache(1024, Duration.ofMinutes(1));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 500; i++) {
+                    SearchResultCache.Key key = key(1, thread + "-" + i);
+                    cache.put(key, results("P" + i));
+                    List<Product> cached = cache.get(key);
+                    if (cached != null) {
+                        assertEquals("P" + i, cached.get(0).getName());
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        SearchResultCache.Stats stats = cache.stats();
+        assertTrue(stats.size() <= 1024);
+        assertEquals(4000, stats.size() + stats.evictions());
+        assertEquals(4000, stats.hits() + stats.misses());
+    }
+
+    @Test
+    @DisplayName("get should not return expired entries")
+    void testExpiry() {
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofNanos(1));
+        cache.put(key(1, "laptop"), results("Laptop"));
+
+        assertNull(cache.get(key(1, "laptop")));
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    @DisplayName("a newer catalog version should drop every entry and refuse older results")
+    void testVersionInvalidation() {
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofMinutes(1));
+        cache.put(key(1, "laptop"), results("Laptop"));
+        cache.put(key(1, "mouse"), results("Mouse"));
+
+        assertNull(cache.get(key(2, "laptop")));
+        assertEquals(0, cache.stats().size());
+        assertEquals(1, cache.stats().invalidations());
+
+        cache.put(key(1, "laptop"), results("Laptop"));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    @DisplayName("a cache with no entries should be disabled and reject a negative size")
+    void testDisabled() {
+        SearchResultCache cache = new SearchResultCache(0, Duration.ofMinutes(1));
+        assertFalse(cache.enabled());
+        cache.put(key(1, "laptop"), results("Laptop"));
+        assertNull(cache.get(key(1, "laptop")));
+        assertEquals(0, cache.stats().misses());
+
+        assertThrows(IllegalArgumentException.class, () -> new SearchResultCache(-1, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    @DisplayName("bindTo should export the cache statistics as meters")
+    void testMeters() {
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofMinutes(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        cache.get(key(1, "laptop"));
+        cache.put(key(1, "laptop"), results("Laptop"));
+        cache.get(key(1, "laptop"));
+        cache.get(key(2, "laptop"));
+
+        assertEquals(1, registry.get("catalog.search.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(2, registry.get("catalog.search.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("catalog.search.cache.invalidations").functionCounter().count());
+        assertEquals(0, registry.get("catalog.search.cache.size").gauge().value());
+    }
+}
@@ -67,4 +67,69 @@ class SearchTest {
     void testRepeatedCharacters() {
         assertEquals(1, Search.distance("banana", "bananna"));
     }
+
+    @Test
+    void testBoundedWithinThreshold() {
+        assertEquals(3, Search.distance("kitten", "sitting", 3));
+        assertEquals(1, Search.distance("test", "tets", 1));
+        assertEquals(0, Search.distance("test", "test", 0));
+    }
+
+    @Test
+    void testBoundedOverThreshold() {
+        assertEquals(3, Search.distance("kitten", "sitting", 2));
+        assertEquals(1, Search.distance("abc", "xyz", 0));
+        assertEquals(2, Search.distance("a", "abcdef", 1));
+    }
+
+    @Test
+    void testBoundedNegativeThreshold() {
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> Search.distance("a", "b", -1));
+        assertEquals("Max distance cannot be negative", ex.getMessage());
+    }
+
+    @Test
+    void testBoundedAgreesWithFullDistance() {
+        java.util.Random random = new java.util.Random(7);
+        for (int n = 0; n < 2000; n++) {
+            String a = randomString(random);
+            String b = randomString(random);
+            int expected = fullDistance(a, b);
+            assertEquals(expected, Search.distance(a, b));
+            for (int max = 0; max <= 6; max++) {
+                int bounded = Search.distance(a, b, max);
+                if (expected <= max) {
+                    assertEquals(expected, bounded, a + " / " + b + " max " + max);
+                } else {
+                    assertEquals(max + 1, bounded, a + " / " + b + " max " + max);
+                }
+            }
+        }
+    }
+
+    private static String randomString(java.util.Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(9);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+
+    // reference full-matrix optimal string alignment distance
+    private static int fullDistance(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) dp[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) dp[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    dp[i][j] = Math.min(dp[i][j], dp[i - 2][j - 2] + cost);
+                }
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
 }